@@ -3,10 +3,13 @@ package Controladora;
 import Dades.*;
 import Vista.GUIOperacionsMatrius;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ForkJoinPool;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
 
 /**
  * Classe controladora que gestiona els càlculs matricials i la comunicació amb la vista.
@@ -14,10 +17,19 @@ import java.util.concurrent.ForkJoinPool;
  */
 public class CalculMatricial implements Notificar {
     private GUIOperacionsMatrius gui;
-    private boolean isRunning = false;
+    private volatile boolean isRunning = false;
     private Thread calculationThread;
-    private ExecutorService executor;
-    private ForkJoinPool forkJoinPool;
+    private volatile TokenCancellacio currentToken;
+    private Duration timeBudget;
+    private boolean verifyResults;
+    private int verifyRounds;
+    private SplittableRandom verifySeeds;
+    private String operationReport;
+    private volatile String lastStatus = "";
+    private final MetriquesOperacions metriques = new MetriquesOperacions();
+    private final DespatxadorMultiplicacio dispatcher = new DespatxadorMultiplicacio(new ModelCost());
+    private final Set<String> exhaustedOperations = new HashSet<>();
+    private volatile SostreRendiment roofline;
 
     // Estructures de dades per emmagatzemar resultats
     private List<BenchmarkResult> additionResults = new ArrayList<>();
@@ -45,10 +57,21 @@ public class CalculMatricial implements Notificar {
     }
 
     /**
-     * Constructor principal que inicialitza la interfície gràfica
+     * Constructor principal que registra l'MBean de mètriques, inicialitza la interfície gràfica i llança les
+     * sondes del {@link SostreRendiment roofline} en segon pla.
      */
     public CalculMatricial() {
+        metriques.registrarMBean();
         this.gui = new GUIOperacionsMatrius(this);
+        Thread probe = new Thread(() -> {
+            try {
+                gui.showStatus(SostreRendiment.host().descriure());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "roofline-probe");
+        probe.setDaemon(true);
+        probe.start();
     }
 
     /**
@@ -58,16 +81,25 @@ public class CalculMatricial implements Notificar {
      * @param sumEnabled Habilita l'operació de suma.
      * @param multiplicationEnabled Habilita l'operació de multiplicació.
      * @param useFixedSeed Ús de llavor fixa per a valors reproduïbles.
+     * @param verifyEnabled Verifica cada multiplicació amb l'algorisme de Freivalds.
+     * @param verifyRounds Rondes de Freivalds per verificació (error com a molt 2^-rondes).
+     * @param timeBudgetSeconds Temps màxim per operació en segons (0 sense límit).
      */
     @Override
     public void onCalculationStarted(int initialDimension, int stepping, boolean sumEnabled,
-                                     boolean multiplicationEnabled, boolean useFixedSeed) {
+                                     boolean multiplicationEnabled, boolean useFixedSeed, boolean verifyEnabled,
+                                     int verifyRounds, double timeBudgetSeconds) {
         if (isRunning) return;
 
         // Reiniciar estats i dades
         additionResults.clear();
         multiplicationResults.clear();
+        exhaustedOperations.clear();
         isRunning = true;
+        verifyResults = verifyEnabled;
+        this.verifyRounds = Math.max(1, verifyRounds);
+        verifySeeds = useFixedSeed ? new SplittableRandom(42) : new SplittableRandom();
+        timeBudget = timeBudgetSeconds > 0 ? Duration.ofNanos((long) (timeBudgetSeconds * 1e9)) : null;
         gui.setCalculationRunning(true);
 
         // Configurar i iniciar fil de càlcul
@@ -83,18 +115,19 @@ public class CalculMatricial implements Notificar {
     }
 
     /**
-     * Atura tots els processos actius (fils, executors) i notifica la vista per deshabilitar controls.
+     * Atura tots els processos actius (fil de càlcul i operació en curs) i notifica la vista per deshabilitar controls.
      */
     @Override
     public void onCalculationStopped() {
         // Aturar recursos de forma segura
         isRunning = false;
+        TokenCancellacio token = currentToken;
+        if (token != null) {
+            token.cancellar();
+        }
         if (calculationThread != null && calculationThread.isAlive()) {
             calculationThread.interrupt();
         }
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdownNow();
-        }
         gui.setCalculationRunning(false);
     }
 
@@ -111,7 +144,7 @@ public class CalculMatricial implements Notificar {
         gui.addDataPoint(operationType, dimension, executionTime, constant);
         if ("Addition".equals(operationType)) {
             additionResults.add(new BenchmarkResult(dimension, executionTime, constant));
-        } else if ("Multiplication".equals(operationType)) {
+        } else if ("Multiplication".equals(operationKind(operationType))) {
             multiplicationResults.add(new BenchmarkResult(dimension, executionTime, constant));
         }
     }
@@ -130,6 +163,12 @@ public class CalculMatricial implements Notificar {
 
     /**
      * Executa iterativament els càlculs de les operacions seleccionades, augmentant la mida de les matrius.
+     * Cada mida es multiplica amb tots els motors de {@link RegistreMotors}, cadascun en una sèrie pròpia, i els
+     * temps alimenten el model de cost del despatxador. Si un motor hauria de recórrer a un altre algorisme per
+     * manca de heap, primer es demana una recollida i, si tot i així hi recorre, el punt va a una sèrie
+     * "fallback" pròpia i no alimenta el model. Les operacions que exhaureixen el termini es deixen de
+     * mesurar i la sèrie s'atura quan no en queda cap. Abans de començar s'espera que acabin les sondes del
+     * roofline, perquè no competeixin amb les mesures.
      * @param initialDimension Mida inicial de les matrius.
      * @param stepping Increment de mida per iteració.
      * @param sumEnabled Indica si s'executen sumes.
@@ -140,63 +179,259 @@ public class CalculMatricial implements Notificar {
                                  boolean multiplicationEnabled, boolean useFixedSeed) {
         java.util.Random random = useFixedSeed ? new java.util.Random(42) : new java.util.Random();
         int n = initialDimension;
+        try {
+            roofline = SostreRendiment.host();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            shutdownResources();
+            return;
+        }
 
-        // Use a single ForkJoinPool for all multiplication tasks
-        forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
-
-        while (isRunning) {
+        while (isRunning && hasPendingOperations(sumEnabled, multiplicationEnabled)) {
             Matriu matriuA = new Matriu(n);
             Matriu matriuB = new Matriu(n);
-            matriuA.initRandom();
-            matriuB.initRandom();
+            matriuA.initRandom(random.nextLong());
+            matriuB.initRandom(random.nextLong());
 
             // Execució de sumes
-            if (sumEnabled) {
+            if (sumEnabled && !exhaustedOperations.contains("Addition")) {
                 int finalN = n;
                 new Suma();
                 processOperation(matriuA, matriuB, n, "Addition",
-                        (a, b) -> Suma.add(a, b),
-                        time -> Suma.constante(time, finalN));
+                        (a, b, token, job) -> Suma.add(a, b, job, token),
+                        time -> Suma.constante(time, finalN), false, null);
             }
 
             // Execució de multiplicacions
-            if (multiplicationEnabled) {
+            if (multiplicationEnabled && isRunning) {
                 int finalN1 = n;
-                processOperation(matriuA, matriuB, n, "Multiplication",
-                        (a, b) -> new Multiplicacio(a, b).compute(), // Crida directa sense ForkJoinPool extern
-                        time -> constanteMult(time, finalN1));
+                PlanificadorMemoria.Pla pla = PlanificadorMemoria.planificar(n);
+                if (!pla.isExecutable()) {
+                    onCalculationError("Not enough memory for Multiplication " + pla);
+                    break;
+                }
+                for (EstrategiaMultiplicacio engine : RegistreMotors.tots()) {
+                    String operationName = "Multiplication (" + engine.getNom() + ")";
+                    if (!isRunning) break;
+                    if (exhaustedOperations.contains(operationName)) continue;
+                    if (engine.usaAlternativa(n)) {
+                        // Els motors anteriors han deixat escombraries: es recull fora del temps mesurat
+                        System.gc();
+                    }
+                    if (engine.usaAlternativa(n)) {
+                        // Punt a part i fora del model de cost: el temps no és una mostra d'aquest motor
+                        String fallbackName = "Multiplication (" + engine.getNom() + " fallback)";
+                        if (!exhaustedOperations.contains(fallbackName)) {
+                            processOperation(matriuA, matriuB, n, fallbackName, engine::multiplicar,
+                                    time -> constanteMult(time, finalN1), verifyResults, new MemoryProbe(engine, n));
+                        }
+                        continue;
+                    }
+                    processOperation(matriuA, matriuB, n, operationName,
+                            (a, b, token, job) -> dispatcher.multiplicar(engine, a, b, token, job),
+                            time -> constanteMult(time, finalN1), verifyResults, new MemoryProbe(engine, n));
+                }
+                if (isRunning) {
+                    int next = n + stepping;
+                    gui.showStatus(String.format("%s | dispatcher pick for n=%d: %s", lastStatus,
+                            next, dispatcher.triar(next, 1.0, PlanificadorExecucio.global().getParallelisme()).getNom()));
+                }
             }
 
             n += stepping;
             pauseCalculation();
         }
 
-        // Shutdown the ForkJoinPool when done
-        forkJoinPool.shutdown();
         shutdownResources();
     }
 
     /**
-     * Processa una operació matricial genèrica.
+     * Pic de memòria previst i mesurat d'una multiplicació. Les consultes al heap es fan just abans i just després
+     * de l'operació, fora del temps mesurat.
+     */
+    private static class MemoryProbe {
+        private final EstrategiaMultiplicacio engine;
+        private final int dimension;
+        private long predicted;
+        private long before;
+
+        MemoryProbe(EstrategiaMultiplicacio engine, int dimension) {
+            this.engine = engine;
+            this.dimension = dimension;
+        }
+
+        /**
+         * Calcula la previsió i reinicia el pic del heap.
+         */
+        void start() {
+            predicted = engine.bytesPrevistos(dimension);
+            before = PlanificadorMemoria.heapUsat();
+            PlanificadorMemoria.reiniciarPic();
+        }
+
+        /**
+         * @return Informe amb el pic previst i el mesurat des de {@link #start()}.
+         */
+        String report() {
+            long actual = Math.max(0, PlanificadorMemoria.picHeap() - before);
+            return String.format("%s n=%d: predicted peak %d MB, actual %d MB",
+                    engine.getNom(), dimension, predicted >> 20, actual >> 20);
+        }
+    }
+
+    /**
+     * Indica si queda alguna operació habilitada que no hagi exhaurit el termini.
+     * @param sumEnabled Indica si s'executen sumes.
+     * @param multiplicationEnabled Indica si s'executen multiplicacions.
+     * @return Cert si encara hi ha operacions per mesurar.
+     */
+    private boolean hasPendingOperations(boolean sumEnabled, boolean multiplicationEnabled) {
+        if (sumEnabled && !exhaustedOperations.contains("Addition")) return true;
+        if (!multiplicationEnabled) return false;
+        for (EstrategiaMultiplicacio engine : RegistreMotors.tots()) {
+            if (!exhaustedOperations.contains("Multiplication (" + engine.getNom() + ")")) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tipus d'operació d'un nom de sèrie, sense el motor: "Multiplication (Strassen)" és "Multiplication".
+     * @param operationName Nom de la sèrie.
+     * @return Tipus d'operació.
+     */
+    private static String operationKind(String operationName) {
+        int engine = operationName.indexOf(" (");
+        return engine < 0 ? operationName : operationName.substring(0, engine);
+    }
+
+    /**
+     * Nom de mètrica d'una sèrie, amb el motor com a variant: "Multiplication (Strassen)" és
+     * "Multiplication/Strassen", de manera que cada motor té el seu histograma.
+     * @param operationName Nom de la sèrie.
+     * @return Nom de la mètrica.
+     */
+    private static String metricName(String operationName) {
+        String kind = operationKind(operationName);
+        if (kind.equals(operationName)) return kind;
+        return kind + "/" + operationName.substring(kind.length() + 2, operationName.length() - 1);
+    }
+
+    /**
+     * Processa una operació matricial genèrica dins d'una feina del planificador global i n'informa de la
+     * utilització i de l'espera a la cua.
      * @param a Matriu A.
      * @param b Matriu B.
      * @param dimension Mida actual de les matrius.
      * @param operationName Nom de l'operació per a registres.
      * @param operation Implementació de l'operació matricial.
      * @param constantCalculator Càlcul de la constant de rendiment.
+     * @param verify Verifica el producte amb Freivalds fora del temps mesurat.
+     * @param memoryProbe Mesura del pic de memòria fora del temps mesurat (null sense mesura).
      */
     private void processOperation(Matriu a, Matriu b, int dimension, String operationName,
-                                  MatrixOperation operation, ConstantCalculator constantCalculator) {
+                                  MatrixOperation operation, ConstantCalculator constantCalculator, boolean verify,
+                                  MemoryProbe memoryProbe) {
         if (!isRunning) return;
 
-        try {
-            long start = System.nanoTime();
-            operation.execute(a, b);
-            double time = (System.nanoTime() - start) / 1_000_000.0;
+        operationReport = null;
+        TokenCancellacio token = timeBudget != null ? new TokenCancellacio(timeBudget) : new TokenCancellacio();
+        currentToken = token;
+        if (!isRunning) token.cancellar();
+        PlanificadorExecucio planificador = PlanificadorExecucio.global();
+        if (memoryProbe != null) memoryProbe.start();
+        long start = System.nanoTime();
+        try (PlanificadorExecucio.Feina job = planificador.obrirFeina(operationName, planificador.getParallelisme())) {
+            Matriu result = operation.execute(a, b, token, job);
+            long elapsed = System.nanoTime() - start;
+            String jobReport = job.estadistiques();
+            metriques.registrar(metricName(operationName), elapsed);
+            double time = elapsed / 1_000_000.0;
+            if (memoryProbe != null) operationReport = memoryProbe.report();
+
+            if (verify && !verifyResult(a, b, result, operationName, dimension)) return;
+
             double constant = constantCalculator.calculate(time);
             onCalculationCompleted(operationName, dimension, time, constant);
+            lastStatus = rooflineReport(operationName, dimension, time) + "; "
+                    + (operationReport != null ? operationReport + "; " + jobReport : jobReport);
+            gui.showStatus(lastStatus);
+        } catch (CancellationException e) {
+            reportCancellation(operationName, dimension, token, (System.nanoTime() - start) / 1_000_000.0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reportCancellation(operationName, dimension, token, (System.nanoTime() - start) / 1_000_000.0);
+        } catch (OutOfMemoryError e) {
+            onCalculationError("Out of memory in " + operationName + " (n=" + dimension + "); increase -Xmx or reduce the size");
         } catch (Exception e) {
             onCalculationError("Error en " + operationName + ": " + e.getMessage());
+        } finally {
+            currentToken = null;
+        }
+    }
+
+    /**
+     * Rendiment assolit d'una operació i percentatge del límit del roofline de la màquina: GB/s respecte de
+     * l'amplada de banda per a la suma i GOPS respecte de min(pic, intensitat · amplada de banda) per a la
+     * multiplicació.
+     * @param operationName Nom de l'operació.
+     * @param dimension Mida de les matrius.
+     * @param time Temps d'execució en mil·lisegons.
+     * @return Text de l'informe.
+     */
+    private String rooflineReport(String operationName, int dimension, double time) {
+        if ("Addition".equals(operationName)) {
+            return String.format("%s n=%d: %.2f GB/s (%.0f%% of %.1f GB/s STREAM)", operationName, dimension,
+                    SostreRendiment.gbsSuma(dimension, time), roofline.percentatgeSuma(dimension, time),
+                    roofline.getAmpladaBandaGBs());
+        }
+        return String.format("%s n=%d: %.2f GOPS (%.0f%% of %.1f GOPS roofline)", operationName, dimension,
+                SostreRendiment.gopsMultiplicacio(dimension, time), roofline.percentatgeMultiplicacio(dimension, time),
+                roofline.limitGops(SostreRendiment.intensitatMultiplicacio(dimension)));
+    }
+
+    /**
+     * Verifica un producte amb l'algorisme de Freivalds, amb les rondes triades a la vista i una llavor de la
+     * seqüència de la sessió (reproduïble amb llavor fixa), i afegeix el temps de verificació a l'informe.
+     * El temps es registra a les mètriques com a operació "Verification", separat del de la multiplicació.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param result Producte calculat.
+     * @param operationName Nom de l'operació.
+     * @param dimension Mida de les matrius.
+     * @return Cert si el resultat és correcte; si no, s'ha notificat l'error.
+     */
+    private boolean verifyResult(Matriu a, Matriu b, Matriu result, String operationName, int dimension) {
+        long start = System.nanoTime();
+        boolean correct = VerificacioFreivalds.verificar(a, b, result, verifyRounds, verifySeeds.nextLong());
+        long elapsed = System.nanoTime() - start;
+        metriques.registrar("Verification", elapsed);
+
+        if (!correct) {
+            onCalculationError(operationName + " result at n=" + dimension + " failed Freivalds verification");
+            return false;
+        }
+        String verification = String.format("verified (%d Freivalds rounds) in %.1f ms",
+                verifyRounds, elapsed / 1_000_000.0);
+        operationReport = operationReport == null
+                ? operationName + " n=" + dimension + " " + verification
+                : operationReport + "; " + verification;
+        return true;
+    }
+
+    /**
+     * Informa del progrés parcial d'una operació aturada. Si s'ha exhaurit el termini, les mides següents
+     * també l'excedirien, per això l'operació es deixa de mesurar.
+     * @param operationName Nom de l'operació.
+     * @param dimension Mida de les matrius.
+     * @param token Token de l'operació aturada.
+     * @param time Temps transcorregut en mil·lisegons.
+     */
+    private void reportCancellation(String operationName, int dimension, TokenCancellacio token, double time) {
+        String reason = token.terminiExhaurit() ? "time budget exceeded" : "stopped";
+        gui.showStatus(String.format("%s (n=%d) %s after %.1f ms at %.0f%% progress",
+                operationName, dimension, reason, time, token.progres() * 100));
+        if (isRunning && token.terminiExhaurit()) {
+            exhaustedOperations.add(operationName);
         }
     }
 
@@ -205,7 +440,7 @@ public class CalculMatricial implements Notificar {
      */
     @FunctionalInterface
     private interface MatrixOperation {
-        void execute(Matriu a, Matriu b) throws Exception;
+        Matriu execute(Matriu a, Matriu b, TokenCancellacio token, PlanificadorExecucio.Feina job) throws Exception;
     }
 
     /**
@@ -231,20 +466,20 @@ public class CalculMatricial implements Notificar {
      * Alliberament controlat de recursos
      */
     private void shutdownResources() {
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdownNow();
-        }
-        if (forkJoinPool != null && !forkJoinPool.isShutdown()) {
-            forkJoinPool.shutdown();
-        }
         if (isRunning) {
             isRunning = false;
             gui.setCalculationRunning(false);
         }
     }
 
+    /**
+     * Calcula la constant de rendiment per a multiplicacions.
+     * @param t Temps d'execució.
+     * @param n Mida de la matriu.
+     * @return Constant calculada (temps / n³), amb n³ en coma flotant perquè no desbordi per a n &ge; 1291.
+     */
     public static double constanteMult(double t, int n){
-        return (t/(double)(n*n*n));
+        return t / ((double) n * n * n);
     }
 
     public static void main(String[] args) {
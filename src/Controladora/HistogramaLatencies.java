@@ -0,0 +1,131 @@
+package Controladora;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latències amb cubetes log-lineals a l'estil d'HdrHistogram.
+ * Els valors inferiors a {@value #SUBCUBETES} es compten exactament; a partir d'aquí cada potència de dos
+ * es divideix en {@code SUBCUBETES / 2} cubetes lineals, de manera que l'error relatiu és inferior al 3%.
+ * El registre és lliure de bloqueigs i es pot cridar des de qualsevol fil.
+ */
+public class HistogramaLatencies {
+    private static final int BITS_SUBCUBETA = 6;
+    private static final int SUBCUBETES = 1 << BITS_SUBCUBETA;
+    private static final int MEITAT = SUBCUBETES / 2;
+
+    private final AtomicLongArray comptadors = new AtomicLongArray((64 - BITS_SUBCUBETA + 2) * MEITAT);
+
+    /**
+     * Registra una mostra.
+     * @param valor Latència en nanosegons (els valors negatius es compten com a 0).
+     */
+    public void registrar(long valor) {
+        comptadors.incrementAndGet(index(Math.max(valor, 0)));
+    }
+
+    /**
+     * Retorna el nombre total de mostres.
+     * @return Nombre de mostres registrades.
+     */
+    public long total() {
+        long total = 0;
+        for (int i = 0; i < comptadors.length(); i++) {
+            total += comptadors.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Calcula un percentil aproximat.
+     * @param percentil Percentil entre 0 i 100.
+     * @return Valor representatiu de la cubeta que conté el percentil, o 0 si no hi ha mostres.
+     */
+    public long percentil(double percentil) {
+        long total = total();
+        if (total == 0) return 0;
+
+        long objectiu = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+        long acumulat = 0;
+        for (int i = 0; i < comptadors.length(); i++) {
+            acumulat += comptadors.get(i);
+            if (acumulat >= objectiu) {
+                return valorMig(i);
+            }
+        }
+        return valorMig(comptadors.length() - 1);
+    }
+
+    /**
+     * Retorna el valor màxim aproximat registrat.
+     * @return Límit superior de la darrera cubeta no buida, o 0 si no hi ha mostres.
+     */
+    public long maxim() {
+        for (int i = comptadors.length() - 1; i >= 0; i--) {
+            if (comptadors.get(i) > 0) {
+                return valorInferior(i) + ampladaCubeta(i) - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Acumula les mostres d'aquest histograma sobre un altre.
+     * @param desti Histograma on s'afegeixen les mostres.
+     */
+    public void afegirA(HistogramaLatencies desti) {
+        for (int i = 0; i < comptadors.length(); i++) {
+            long valor = comptadors.get(i);
+            if (valor != 0) desti.comptadors.addAndGet(i, valor);
+        }
+    }
+
+    /**
+     * Descriu les cubetes no buides, una per línia, amb el límit inferior en mil·lisegons.
+     * @return Línies del tipus "&gt;= 1.234 ms: 17".
+     */
+    public String[] descriure() {
+        List<String> linies = new ArrayList<>();
+        for (int i = 0; i < comptadors.length(); i++) {
+            long valor = comptadors.get(i);
+            if (valor != 0) {
+                linies.add(String.format(">= %.3f ms: %d", valorInferior(i) / 1_000_000.0, valor));
+            }
+        }
+        return linies.toArray(new String[0]);
+    }
+
+    /**
+     * Buida l'histograma.
+     */
+    public void reiniciar() {
+        for (int i = 0; i < comptadors.length(); i++) {
+            comptadors.set(i, 0);
+        }
+    }
+
+    private static int index(long valor) {
+        if (valor < SUBCUBETES) return (int) valor;
+        int desplacament = (63 - Long.numberOfLeadingZeros(valor)) - (BITS_SUBCUBETA - 1);
+        return desplacament * MEITAT + (int) (valor >>> desplacament);
+    }
+
+    private static int desplacament(int index) {
+        return index < SUBCUBETES ? 0 : index / MEITAT - 1;
+    }
+
+    private static long valorInferior(int index) {
+        if (index < SUBCUBETES) return index;
+        int desplacament = desplacament(index);
+        return (long) (index - desplacament * MEITAT) << desplacament;
+    }
+
+    private static long ampladaCubeta(int index) {
+        return 1L << desplacament(index);
+    }
+
+    private static long valorMig(int index) {
+        return valorInferior(index) + ampladaCubeta(index) / 2;
+    }
+}
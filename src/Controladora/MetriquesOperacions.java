@@ -0,0 +1,231 @@
+package Controladora;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MBean amb el rendiment i les latències de les operacions executades pel controlador.
+ * Les mostres es guarden en franges de {@value #DURADA_FRANJA_SEGONS} segons; una consulta fusiona les
+ * franges que encara són dins la finestra, de manera que JMC o jcmd veuen sempre els valors recents.
+ * <p>
+ * Cada tipus d'operació pot tenir variants amb nom "tipus/variant", per exemple "Multiplication/Strassen":
+ * cada variant té el seu histograma i les consultes del tipus fusionen el tipus i totes les seves variants.
+ */
+public class MetriquesOperacions implements MetriquesOperacionsMBean {
+    public static final String NOM_OBJECTE = "OperacionsMatrius:type=MetriquesOperacions";
+    public static final int FINESTRA_SEGONS = 60;
+
+    private static final int DURADA_FRANJA_SEGONS = 5;
+    private static final int FRANGES = FINESTRA_SEGONS / DURADA_FRANJA_SEGONS;
+    private static final long DURADA_FRANJA_NS = DURADA_FRANJA_SEGONS * 1_000_000_000L;
+
+    private final Map<String, Finestra> finestres = new ConcurrentHashMap<>();
+    private final long inici = System.nanoTime();
+
+    /**
+     * Finestra mòbil d'histogrames per a un tipus d'operació.
+     */
+    private static class Finestra {
+        final HistogramaLatencies[] franges = new HistogramaLatencies[FRANGES];
+        final long[] epoques = new long[FRANGES];
+
+        Finestra() {
+            for (int i = 0; i < FRANGES; i++) {
+                franges[i] = new HistogramaLatencies();
+                epoques[i] = -1;
+            }
+        }
+
+        synchronized void registrar(long epoca, long nanos) {
+            int i = (int) (epoca % FRANGES);
+            if (epoques[i] != epoca) {
+                franges[i].reiniciar();
+                epoques[i] = epoca;
+            }
+            franges[i].registrar(nanos);
+        }
+
+        synchronized HistogramaLatencies fusionar(long epocaActual) {
+            HistogramaLatencies resultat = new HistogramaLatencies();
+            for (int i = 0; i < FRANGES; i++) {
+                if (epocaActual - epoques[i] < FRANGES) {
+                    franges[i].afegirA(resultat);
+                }
+            }
+            return resultat;
+        }
+    }
+
+    /**
+     * Registra aquest MBean al servidor de plataforma. Un error de registre no ha d'impedir els càlculs,
+     * per això només s'informa per la sortida d'error.
+     */
+    public void registrarMBean() {
+        registrarMBean(NOM_OBJECTE);
+    }
+
+    /**
+     * Registra aquest MBean al servidor de plataforma amb un nom propi, per exemple per al servei de càlcul.
+     * @param nomObjecte Nom JMX de l'objecte.
+     */
+    public void registrarMBean(String nomObjecte) {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nom = new ObjectName(nomObjecte);
+            if (servidor.isRegistered(nom)) {
+                servidor.unregisterMBean(nom);
+            }
+            servidor.registerMBean(this, nom);
+        } catch (JMException e) {
+            System.err.println("No s'ha pogut registrar l'MBean de mètriques: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registra la durada d'una operació completada.
+     * @param operationType Tipus d'operació ("Addition", "Multiplication" o "Verification"), opcionalment amb
+     *                      la variant ("Multiplication/Strassen").
+     * @param nanos Durada en nanosegons.
+     */
+    public void registrar(String operationType, long nanos) {
+        finestres.computeIfAbsent(operationType, k -> new Finestra()).registrar(epocaActual(), nanos);
+    }
+
+    /**
+     * Retorna l'histograma fusionat de la finestra actual per a una operació i totes les seves variants.
+     * @param operationType Tipus d'operació, o tipus i variant.
+     * @return Histograma amb les mostres de la finestra.
+     */
+    public HistogramaLatencies histograma(String operationType) {
+        long epoca = epocaActual();
+        HistogramaLatencies resultat = new HistogramaLatencies();
+        for (Map.Entry<String, Finestra> entrada : finestres.entrySet()) {
+            String nom = entrada.getKey();
+            if (nom.equals(operationType) || nom.startsWith(operationType + "/")) {
+                entrada.getValue().fusionar(epoca).afegirA(resultat);
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Resumeix cada variant d'un tipus d'operació per separat, ordenades pel nom.
+     * @param operationType Tipus d'operació.
+     * @return Una línia per variant amb les mostres, la mediana, el percentil 99 i el màxim.
+     */
+    private String[] descriureVariants(String operationType) {
+        String prefix = operationType + "/";
+        return finestres.keySet().stream()
+                .filter(nom -> nom.startsWith(prefix))
+                .sorted()
+                .map(nom -> {
+                    HistogramaLatencies h = histograma(nom);
+                    return String.format("%s: count=%d p50=%.2f ms p99=%.2f ms max=%.2f ms",
+                            nom.substring(prefix.length()), h.total(), enMs(h.percentil(50)),
+                            enMs(h.percentil(99)), enMs(h.maxim()));
+                })
+                .toArray(String[]::new);
+    }
+
+    private long epocaActual() {
+        return (System.nanoTime() - inici) / DURADA_FRANJA_NS;
+    }
+
+    private double throughput(String operationType) {
+        double segons = Math.min(FINESTRA_SEGONS, (System.nanoTime() - inici) / 1e9);
+        return segons <= 0 ? 0 : histograma(operationType).total() / segons;
+    }
+
+    private static double enMs(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    @Override
+    public long getAdditionCount() {
+        return histograma("Addition").total();
+    }
+
+    @Override
+    public double getAdditionThroughput() {
+        return throughput("Addition");
+    }
+
+    @Override
+    public double getAdditionLatencyP50Ms() {
+        return enMs(histograma("Addition").percentil(50));
+    }
+
+    @Override
+    public double getAdditionLatencyP99Ms() {
+        return enMs(histograma("Addition").percentil(99));
+    }
+
+    @Override
+    public double getAdditionLatencyMaxMs() {
+        return enMs(histograma("Addition").maxim());
+    }
+
+    @Override
+    public String[] getAdditionLatencyHistogram() {
+        return histograma("Addition").descriure();
+    }
+
+    @Override
+    public long getMultiplicationCount() {
+        return histograma("Multiplication").total();
+    }
+
+    @Override
+    public double getMultiplicationThroughput() {
+        return throughput("Multiplication");
+    }
+
+    @Override
+    public double getMultiplicationLatencyP50Ms() {
+        return enMs(histograma("Multiplication").percentil(50));
+    }
+
+    @Override
+    public double getMultiplicationLatencyP99Ms() {
+        return enMs(histograma("Multiplication").percentil(99));
+    }
+
+    @Override
+    public double getMultiplicationLatencyMaxMs() {
+        return enMs(histograma("Multiplication").maxim());
+    }
+
+    @Override
+    public String[] getMultiplicationLatencyHistogram() {
+        return histograma("Multiplication").descriure();
+    }
+
+    @Override
+    public String[] getMultiplicationLatencyByEngine() {
+        return descriureVariants("Multiplication");
+    }
+
+    @Override
+    public long getVerificationCount() {
+        return histograma("Verification").total();
+    }
+
+    @Override
+    public double getVerificationLatencyP50Ms() {
+        return enMs(histograma("Verification").percentil(50));
+    }
+
+    @Override
+    public double getVerificationLatencyP99Ms() {
+        return enMs(histograma("Verification").percentil(99));
+    }
+
+    @Override
+    public void reset() {
+        finestres.clear();
+    }
+}
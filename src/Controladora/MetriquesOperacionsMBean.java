@@ -0,0 +1,93 @@
+package Controladora;
+
+/**
+ * Interfície JMX de les mètriques de les operacions executades pel controlador.
+ * Tots els valors es calculen sobre una finestra mòbil de {@link MetriquesOperacions#FINESTRA_SEGONS} segons.
+ */
+public interface MetriquesOperacionsMBean {
+
+    /**
+     * @return Sumes completades dins la finestra.
+     */
+    long getAdditionCount();
+
+    /**
+     * @return Sumes per segon dins la finestra.
+     */
+    double getAdditionThroughput();
+
+    /**
+     * @return Latència mediana de les sumes en mil·lisegons.
+     */
+    double getAdditionLatencyP50Ms();
+
+    /**
+     * @return Percentil 99 de la latència de les sumes en mil·lisegons.
+     */
+    double getAdditionLatencyP99Ms();
+
+    /**
+     * @return Latència màxima de les sumes en mil·lisegons.
+     */
+    double getAdditionLatencyMaxMs();
+
+    /**
+     * @return Cubetes no buides de l'histograma de latències de les sumes.
+     */
+    String[] getAdditionLatencyHistogram();
+
+    /**
+     * @return Multiplicacions completades dins la finestra.
+     */
+    long getMultiplicationCount();
+
+    /**
+     * @return Multiplicacions per segon dins la finestra.
+     */
+    double getMultiplicationThroughput();
+
+    /**
+     * @return Latència mediana de les multiplicacions en mil·lisegons.
+     */
+    double getMultiplicationLatencyP50Ms();
+
+    /**
+     * @return Percentil 99 de la latència de les multiplicacions en mil·lisegons.
+     */
+    double getMultiplicationLatencyP99Ms();
+
+    /**
+     * @return Latència màxima de les multiplicacions en mil·lisegons.
+     */
+    double getMultiplicationLatencyMaxMs();
+
+    /**
+     * @return Cubetes no buides de l'histograma de latències de les multiplicacions.
+     */
+    String[] getMultiplicationLatencyHistogram();
+
+    /**
+     * @return Mostres, mediana, percentil 99 i màxim de les multiplicacions de cada motor per separat.
+     */
+    String[] getMultiplicationLatencyByEngine();
+
+    /**
+     * @return Verificacions de Freivalds fetes dins la finestra.
+     */
+    long getVerificationCount();
+
+    /**
+     * @return Latència mediana de les verificacions en mil·lisegons.
+     */
+    double getVerificationLatencyP50Ms();
+
+    /**
+     * @return Percentil 99 de la latència de les verificacions en mil·lisegons.
+     */
+    double getVerificationLatencyP99Ms();
+
+    /**
+     * Descarta totes les mostres acumulades.
+     */
+    void reset();
+}
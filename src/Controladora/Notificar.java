@@ -13,9 +13,13 @@ public interface Notificar {
      * @param sumEnabled Habilita l'operació de suma.
      * @param multiplicationEnabled Habilita l'operació de multiplicació.
      * @param useFixedSeed Ús de llavor fixa per a valors reproduïbles.
+     * @param verifyEnabled Verifica cada multiplicació amb l'algorisme de Freivalds.
+     * @param verifyRounds Rondes de Freivalds per verificació (error com a molt 2^-rondes).
+     * @param timeBudgetSeconds Temps màxim per operació en segons (0 sense límit).
      */
     void onCalculationStarted(int initialDimension, int stepping, boolean sumEnabled,
-                              boolean multiplicationEnabled, boolean useFixedSeed);
+                              boolean multiplicationEnabled, boolean useFixedSeed, boolean verifyEnabled,
+                              int verifyRounds, double timeBudgetSeconds);
 
     /**
      * Notifica l'aturada forçosa del càlcul.
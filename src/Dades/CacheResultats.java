@@ -0,0 +1,315 @@
+package Dades;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+
+/**
+ * Memòria cau de productes indexada pel contingut dels operands i pel motor que els ha calculat.
+ * <p>
+ * Cada operand es resumeix amb un hash de 128 bits calculat en paral·lel per blocs de mida fixa i combinat en
+ * ordre, de manera que el resultat no depèn del nombre de fils i el cost és O(n²), molt inferior al de la
+ * multiplicació. Les entrades es desallotgen per ordre LRU quan se supera el pressupost de memòria; si hi ha
+ * directori de bolcat, es desen al disc en {@link FormatBinari} i es tornen a carregar en el següent encert.
+ * El bloqueig només protegeix els índexs: les escriptures i lectures del disc es fan fora, i una entrada que no es
+ * pot bolcar es descarta sense afectar la consulta que l'ha desallotjat.
+ * <p>
+ * Les matrius retornades són compartides amb la memòria cau i no s'han de modificar.
+ */
+public class CacheResultats {
+    private static final int ELEMENTS_PER_BLOC_HASH = 1 << 14;
+    private static final long PRIMER_1 = 0x9E3779B97F4A7C15L;
+    private static final long PRIMER_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private final long pressupostMemoria;
+    private final long pressupostDisc;
+    private final Path directoriBolcat;
+    private final LinkedHashMap<Clau, Matriu> memoria = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Clau, Path> disc = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Clau> bolcantse = new HashSet<>();
+    private long bytesMemoria = 0;
+    private long bytesDisc = 0;
+
+    private final AtomicLong encerts = new AtomicLong();
+    private final AtomicLong encertsDisc = new AtomicLong();
+    private final AtomicLong errades = new AtomicLong();
+    private final AtomicLong desallotjaments = new AtomicLong();
+    private final AtomicLong bolcats = new AtomicLong();
+
+    /**
+     * Clau d'una entrada: hash de 128 bits de cada operand, mida i motor.
+     */
+    private static final class Clau {
+        final long[] hashos;
+        final int mida;
+        final String motor;
+
+        Clau(long[] hashA, long[] hashB, int mida, String motor) {
+            this.hashos = new long[]{hashA[0], hashA[1], hashB[0], hashB[1]};
+            this.mida = mida;
+            this.motor = motor;
+        }
+
+        String nomFitxer() {
+            StringBuilder nom = new StringBuilder(motor.replaceAll("[^A-Za-z0-9]", "_")).append('-').append(mida);
+            for (long hash : hashos) {
+                nom.append('-').append(Long.toHexString(hash));
+            }
+            return nom.append(".mtrx").toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Clau)) return false;
+            Clau altra = (Clau) o;
+            return mida == altra.mida && motor.equals(altra.motor) && Arrays.equals(hashos, altra.hashos);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) hashos[0] * 31 + motor.hashCode();
+        }
+    }
+
+    /**
+     * Crea una memòria cau només en memòria.
+     * @param pressupostMemoria Bytes màxims de resultats en memòria.
+     */
+    public CacheResultats(long pressupostMemoria) {
+        this(pressupostMemoria, null, 0);
+    }
+
+    /**
+     * Crea una memòria cau amb bolcat a disc.
+     * @param pressupostMemoria Bytes màxims de resultats en memòria.
+     * @param directoriBolcat Directori on es desen les entrades desallotjades (null sense bolcat).
+     * @param pressupostDisc Bytes màxims de resultats al disc.
+     * @throws UncheckedIOException Si el directori de bolcat no existeix i no es pot crear.
+     */
+    public CacheResultats(long pressupostMemoria, Path directoriBolcat, long pressupostDisc) {
+        this.pressupostMemoria = pressupostMemoria;
+        this.directoriBolcat = directoriBolcat;
+        this.pressupostDisc = pressupostDisc;
+        if (directoriBolcat != null) {
+            try {
+                Files.createDirectories(directoriBolcat);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No es pot crear el directori de bolcat " + directoriBolcat, e);
+            }
+        }
+    }
+
+    /**
+     * Retorna el producte desat per a aquests operands i motor o el calcula i el desa.
+     * El càlcul es fa fora del bloqueig, de manera que dues errades simultànies poden calcular el mateix producte.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param motor Nom del motor, part de la clau.
+     * @param calcul Càlcul a fer en cas d'errada.
+     * @return Producte (compartit, no s'ha de modificar).
+     */
+    public Matriu obtenir(Matriu a, Matriu b, String motor, BinaryOperator<Matriu> calcul) {
+        Clau clau = new Clau(hash(a), hash(b), a.getSize(), motor);
+
+        Matriu desat = buscar(clau);
+        if (desat != null) return desat;
+
+        errades.incrementAndGet();
+        Matriu resultat = calcul.apply(a, b);
+        desar(clau, resultat);
+        return resultat;
+    }
+
+    private Matriu buscar(Clau clau) {
+        Path fitxer;
+        synchronized (this) {
+            Matriu desat = memoria.get(clau);
+            if (desat != null) {
+                encerts.incrementAndGet();
+                return desat;
+            }
+            fitxer = disc.remove(clau);
+            if (fitxer == null) return null;
+            bytesDisc -= bytes(clau);
+        }
+
+        Matriu desat;
+        try {
+            desat = FormatBinari.carregar(fitxer);
+        } catch (IOException e) {
+            System.err.println("No s'ha pogut recuperar " + fitxer + " de la memòria cau: " + e.getMessage());
+            esborrar(fitxer);
+            return null;
+        }
+        esborrar(fitxer);
+        encertsDisc.incrementAndGet();
+        desar(clau, desat);
+        return desat;
+    }
+
+    /**
+     * Afegeix una entrada a la memòria i bolca fora del bloqueig les que se n'han desallotjat.
+     */
+    private void desar(Clau clau, Matriu resultat) {
+        List<Map.Entry<Clau, Matriu>> desallotjades = new ArrayList<>();
+        synchronized (this) {
+            if (bytes(resultat) > pressupostMemoria || memoria.containsKey(clau)) return;
+            memoria.put(clau, resultat);
+            bytesMemoria += bytes(resultat);
+
+            Iterator<Map.Entry<Clau, Matriu>> entrades = memoria.entrySet().iterator();
+            while (bytesMemoria > pressupostMemoria && entrades.hasNext()) {
+                Map.Entry<Clau, Matriu> antiga = entrades.next();
+                if (antiga.getKey().equals(clau)) continue;
+                entrades.remove();
+                bytesMemoria -= bytes(antiga.getValue());
+                desallotjaments.incrementAndGet();
+                if (directoriBolcat != null && bytes(antiga.getValue()) <= pressupostDisc
+                        && !disc.containsKey(antiga.getKey()) && bolcantse.add(antiga.getKey())) {
+                    desallotjades.add(Map.entry(antiga.getKey(), antiga.getValue()));
+                }
+            }
+        }
+        for (Map.Entry<Clau, Matriu> entrada : desallotjades) {
+            bolcar(entrada.getKey(), entrada.getValue());
+        }
+    }
+
+    /**
+     * Desa al disc una entrada desallotjada i, un cop escrita, la registra i esborra les més antigues que
+     * sobrepassen el pressupost. Si l'escriptura falla, l'entrada es descarta.
+     */
+    private void bolcar(Clau clau, Matriu matriu) {
+        Path fitxer = directoriBolcat.resolve(clau.nomFitxer());
+        try {
+            FormatBinari.desar(matriu, fitxer);
+        } catch (IOException e) {
+            System.err.println("No s'ha pogut bolcar una entrada de la memòria cau: " + e.getMessage());
+            synchronized (this) {
+                bolcantse.remove(clau);
+            }
+            esborrar(fitxer);
+            return;
+        }
+
+        List<Path> sobrants = new ArrayList<>();
+        synchronized (this) {
+            bolcantse.remove(clau);
+            disc.put(clau, fitxer);
+            bytesDisc += bytes(clau);
+            bolcats.incrementAndGet();
+
+            Iterator<Map.Entry<Clau, Path>> entrades = disc.entrySet().iterator();
+            while (bytesDisc > pressupostDisc && entrades.hasNext()) {
+                Map.Entry<Clau, Path> antiga = entrades.next();
+                entrades.remove();
+                bytesDisc -= bytes(antiga.getKey());
+                sobrants.add(antiga.getValue());
+            }
+        }
+        for (Path sobrant : sobrants) {
+            esborrar(sobrant);
+        }
+    }
+
+    private static void esborrar(Path fitxer) {
+        try {
+            Files.deleteIfExists(fitxer);
+        } catch (IOException e) {
+            System.err.println("No s'ha pogut esborrar " + fitxer + ": " + e.getMessage());
+        }
+    }
+
+    private static long bytes(Clau clau) {
+        return (long) clau.mida * clau.mida * Integer.BYTES;
+    }
+
+    private static long bytes(Matriu matriu) {
+        return (long) matriu.getData().length * Integer.BYTES;
+    }
+
+    /**
+     * Calcula un hash de 128 bits del contingut d'una matriu, en paral·lel per blocs.
+     * @param matriu Matriu a resumir.
+     * @return Dos enters de 64 bits.
+     */
+    public static long[] hash(Matriu matriu) {
+        int[] dades = matriu.getData();
+        int numBlocs = (dades.length + ELEMENTS_PER_BLOC_HASH - 1) / ELEMENTS_PER_BLOC_HASH;
+        long[] parcials = new long[2 * numBlocs];
+
+        PlanificadorExecucio.global().perCada(numBlocs, bloc -> {
+            int inici = bloc * ELEMENTS_PER_BLOC_HASH;
+            int fi = Math.min(inici + ELEMENTS_PER_BLOC_HASH, dades.length);
+            long h1 = bloc;
+            long h2 = ~(long) bloc;
+            for (int i = inici; i < fi; i++) {
+                h1 = (h1 + dades[i]) * PRIMER_1;
+                h2 = (h2 ^ dades[i]) * PRIMER_2;
+            }
+            parcials[2 * bloc] = barrejar(h1);
+            parcials[2 * bloc + 1] = barrejar(h2);
+        });
+
+        long h1 = matriu.getSize();
+        long h2 = ~(long) matriu.getSize();
+        for (int bloc = 0; bloc < numBlocs; bloc++) {
+            h1 = barrejar(h1 * PRIMER_1 + parcials[2 * bloc]);
+            h2 = barrejar(h2 * PRIMER_2 + parcials[2 * bloc + 1]);
+        }
+        return new long[]{h1, h2};
+    }
+
+    /**
+     * Finalitzador de MurmurHash3 per repartir els bits.
+     */
+    private static long barrejar(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return Resum dels comptadors i de l'ocupació.
+     */
+    public synchronized String estadistiques() {
+        return String.format("hits=%d diskHits=%d misses=%d evictions=%d spills=%d memory=%dMB/%dMB entries=%d disk=%dMB",
+                encerts.get(), encertsDisc.get(), errades.get(), desallotjaments.get(), bolcats.get(),
+                bytesMemoria >> 20, pressupostMemoria >> 20, memoria.size(), bytesDisc >> 20);
+    }
+
+    /**
+     * @return Encerts totals, en memòria i al disc.
+     */
+    public long getEncerts() {
+        return encerts.get() + encertsDisc.get();
+    }
+
+    /**
+     * @return Consultes que han hagut de calcular el producte.
+     */
+    public long getErrades() {
+        return errades.get();
+    }
+
+    /**
+     * @return Entrades desallotjades de la memòria.
+     */
+    public long getDesallotjaments() {
+        return desallotjaments.get();
+    }
+}
@@ -0,0 +1,103 @@
+package Dades;
+
+/**
+ * Tria, per a cada multiplicació, el motor registrat amb el temps previst més baix segons el {@link ModelCost}
+ * per a la mida, la densitat de les entrades i els fils de la feina, i afegeix el temps mesurat al model.
+ * <p>
+ * Els motors sense mesures per a la combinació es proven primer, però només amb mides petites
+ * (n &le; {@value #MIDA_EXPLORACIO}) perquè una exploració no costi un producte gran amb un motor lent. Si cap
+ * motor té mesures, es fa servir {@link RegistreMotors#PER_DEFECTE}.
+ */
+public class DespatxadorMultiplicacio implements EstrategiaMultiplicacio {
+    public static final int MIDA_EXPLORACIO = 256;
+
+    private final ModelCost model;
+
+    /**
+     * @param model Model de cost compartit amb qui hi registri mesures.
+     */
+    public DespatxadorMultiplicacio(ModelCost model) {
+        this.model = model;
+    }
+
+    @Override
+    public String getNom() {
+        return "Auto";
+    }
+
+    @Override
+    public double getExponent() {
+        return RegistreMotors.obtenir(RegistreMotors.PER_DEFECTE).getExponent();
+    }
+
+    /**
+     * Tria el motor per a una multiplicació.
+     * @param n Mida de les matrius.
+     * @param densitat Densitat de les entrades.
+     * @param fils Fils disponibles.
+     * @return Motor triat.
+     */
+    public EstrategiaMultiplicacio triar(int n, double densitat, int fils) {
+        EstrategiaMultiplicacio millor = null;
+        double millorTemps = Double.MAX_VALUE;
+        for (EstrategiaMultiplicacio motor : RegistreMotors.tots()) {
+            double previst = model.predir(motor, n, densitat, fils);
+            if (Double.isNaN(previst)) {
+                if (n <= MIDA_EXPLORACIO) return motor;
+                continue;
+            }
+            if (previst < millorTemps) {
+                millorTemps = previst;
+                millor = motor;
+            }
+        }
+        return millor != null ? millor : RegistreMotors.obtenir(RegistreMotors.PER_DEFECTE);
+    }
+
+    /**
+     * Tria el motor per a aquestes entrades.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param fils Fils disponibles.
+     * @return Motor triat.
+     */
+    public EstrategiaMultiplicacio triar(Matriu a, Matriu b, int fils) {
+        return triar(a.getSize(), densitat(a, b), fils);
+    }
+
+    @Override
+    public Matriu multiplicar(Matriu a, Matriu b, TokenCancellacio token, PlanificadorExecucio.Feina feina)
+            throws InterruptedException {
+        return multiplicar(triar(a, b, feina.getMaxParallelisme()), a, b, token, feina);
+    }
+
+    /**
+     * Multiplica amb un motor concret i n'afegeix el temps al model.
+     * @param motor Motor a fer servir.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param token Token de cancel·lació i progrés.
+     * @param feina Feina del planificador.
+     * @return Producte A·B.
+     * @throws InterruptedException Si s'interromp l'espera dels fils.
+     */
+    public Matriu multiplicar(EstrategiaMultiplicacio motor, Matriu a, Matriu b, TokenCancellacio token,
+                              PlanificadorExecucio.Feina feina) throws InterruptedException {
+        long inici = System.nanoTime();
+        Matriu resultat = motor.multiplicar(a, b, token, feina);
+        model.registrar(motor, a.getSize(), densitat(a, b), feina.getMaxParallelisme(),
+                (System.nanoTime() - inici) / 1_000_000.0);
+        return resultat;
+    }
+
+    /**
+     * @return Model de cost del despatxador.
+     */
+    public ModelCost getModel() {
+        return model;
+    }
+
+    private static double densitat(Matriu a, Matriu b) {
+        return (ModelCost.densitat(a) + ModelCost.densitat(b)) / 2;
+    }
+}
@@ -0,0 +1,50 @@
+package Dades;
+
+import java.util.SplittableRandom;
+
+/**
+ * Distribucions disponibles per generar els valors aleatoris d'una {@link Matriu}.
+ */
+public enum Distribucio {
+    /**
+     * Valors uniformes dins [-límit, límit].
+     */
+    UNIFORME {
+        @Override
+        int generar(SplittableRandom random, int limit) {
+            return (int) random.nextLong(-(long) limit, (long) limit + 1);
+        }
+    },
+
+    /**
+     * Enters petits dins [-9, 9] (o [-límit, límit] si el límit és menor), útils per evitar desbordaments.
+     */
+    ENTERS_PETITS {
+        @Override
+        int generar(SplittableRandom random, int limit) {
+            int petit = Math.min(limit, 9);
+            return random.nextInt(-petit, petit + 1);
+        }
+    },
+
+    /**
+     * Un 10% de valors uniformes dins [-límit, límit] i la resta zeros.
+     */
+    DISPERSA {
+        @Override
+        int generar(SplittableRandom random, int limit) {
+            if (random.nextInt(100) >= DENSITAT_DISPERSA_PERCENT) return 0;
+            return UNIFORME.generar(random, limit);
+        }
+    };
+
+    private static final int DENSITAT_DISPERSA_PERCENT = 10;
+
+    /**
+     * Genera un valor de la distribució.
+     * @param random Flux aleatori.
+     * @param limit Valor absolut màxim (no negatiu).
+     * @return Valor generat.
+     */
+    abstract int generar(SplittableRandom random, int limit);
+}
@@ -0,0 +1,35 @@
+package Dades;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Esdeveniment de JDK Flight Recorder emès per cada nivell de la recursió de {@link Multiplicacio}.
+ * El nivell 0 correspon a la invocació externa; els casos base s'identifiquen pel motor "Classica".
+ */
+@Name("Dades.Multiplicacio")
+@Label("Multiplicació de matrius")
+@Category({"Matrius", "Multiplicacio"})
+@Description("Un nivell de Strassen o un cas base clàssic")
+public class EsdevenimentMultiplicacio extends Event {
+    @Label("Mida")
+    public int mida;
+
+    @Label("Motor")
+    public String motor;
+
+    @Label("Nivell")
+    public int profunditat;
+
+    @Label("Fils")
+    public int fils;
+
+    @Label("Bytes reservats")
+    @Description("Temporals reservats per aquest nivell, sense comptar els subnivells")
+    @DataAmount(DataAmount.BYTES)
+    public long bytesReservats;
+}
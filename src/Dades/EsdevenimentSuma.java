@@ -0,0 +1,28 @@
+package Dades;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Esdeveniment de JDK Flight Recorder emès per cada crida a {@link Suma#add(Matriu, Matriu, int)}.
+ */
+@Name("Dades.Suma")
+@Label("Suma de matrius")
+@Category({"Matrius", "Suma"})
+@Description("Suma paral·lela de dues matrius")
+public class EsdevenimentSuma extends Event {
+    @Label("Mida")
+    public int mida;
+
+    @Label("Fils")
+    public int fils;
+
+    @Label("Bytes reservats")
+    @Description("Memòria reservada per a la matriu resultat")
+    @DataAmount(DataAmount.BYTES)
+    public long bytesReservats;
+}
@@ -0,0 +1,50 @@
+package Dades;
+
+/**
+ * Motor de multiplicació intercanviable. Els motors disponibles es registren a {@link RegistreMotors} i el
+ * {@link DespatxadorMultiplicacio} en tria un per a cada multiplicació segons el {@link ModelCost}.
+ */
+public interface EstrategiaMultiplicacio {
+
+    /**
+     * @return Nom únic del motor, usat a les gràfiques, a la memòria cau i al model de cost.
+     */
+    String getNom();
+
+    /**
+     * Exponent e del model de cost t ≈ c0 + c1·n^e.
+     * @return Exponent asimptòtic del motor.
+     */
+    double getExponent();
+
+    /**
+     * Multiplica dues matrius quadrades.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param token Token de cancel·lació i progrés.
+     * @param feina Feina del planificador on s'executa.
+     * @return Producte A·B.
+     * @throws InterruptedException Si s'interromp l'espera dels fils.
+     * @throws java.util.concurrent.CancellationException Si s'ha cancel·lat el token.
+     */
+    Matriu multiplicar(Matriu a, Matriu b, TokenCancellacio token, PlanificadorExecucio.Feina feina)
+            throws InterruptedException;
+
+    /**
+     * Bytes que el motor preveu reservar a més de les entrades.
+     * @param n Mida de les matrius.
+     * @return Bytes previstos (per defecte, només el resultat).
+     */
+    default long bytesPrevistos(int n) {
+        return (long) n * n * Integer.BYTES;
+    }
+
+    /**
+     * Indica si, amb el heap disponible ara, el motor faria la multiplicació amb un altre algorisme.
+     * @param n Mida de les matrius.
+     * @return Cert si el temps no seria una mostra d'aquest motor (per defecte, fals).
+     */
+    default boolean usaAlternativa(int n) {
+        return false;
+    }
+}
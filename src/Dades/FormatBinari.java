@@ -0,0 +1,191 @@
+package Dades;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Format binari de les matrius, compartit pel disc i per la xarxa.
+ * <p>
+ * Una matriu es desa com a capçalera ({@link #MAGIC}, mida) seguida dels n² enters per files, tot en
+ * little-endian. Les dades passen per un {@link ByteBuffer} directe reutilitzable, de manera que l'única còpia
+ * és la del vector de la matriu al buffer; el canal escriu el buffer directe sense còpies intermèdies.
+ */
+public class FormatBinari {
+    public static final int MAGIC = 0x4D545258; // "MTRX"
+    public static final ByteOrder ORDRE = ByteOrder.LITTLE_ENDIAN;
+    /** Mida més gran amb n² representable com a int (la d'una {@link Matriu}). */
+    public static final int MIDA_MAXIMA = 46340;
+    private static final int MIDA_BUFFER = 1 << 20;
+
+    /**
+     * Crea un buffer directe adequat per a les operacions d'aquesta classe.
+     * @return Buffer de {@value #MIDA_BUFFER} bytes en l'ordre del format.
+     */
+    public static ByteBuffer nouBuffer() {
+        return ByteBuffer.allocateDirect(MIDA_BUFFER).order(ORDRE);
+    }
+
+    /**
+     * Escriu una matriu completa (capçalera i dades).
+     * @param matriu Matriu a escriure.
+     * @param canal Canal de sortida.
+     * @param buffer Buffer directe de treball.
+     * @throws IOException Si falla l'escriptura.
+     */
+    public static void escriure(Matriu matriu, WritableByteChannel canal, ByteBuffer buffer) throws IOException {
+        escriureEnters(canal, buffer, new int[]{MAGIC, matriu.getSize()}, 0, 2);
+        escriureEnters(canal, buffer, matriu.getData(), 0, matriu.getData().length);
+    }
+
+    /**
+     * Llegeix una matriu completa (capçalera i dades).
+     * @param canal Canal d'entrada.
+     * @param buffer Buffer directe de treball.
+     * @return Matriu llegida.
+     * @throws IOException Si falla la lectura o la capçalera no és vàlida.
+     */
+    public static Matriu llegir(ReadableByteChannel canal, ByteBuffer buffer) throws IOException {
+        Matriu matriu = new Matriu(llegirCapcalera(canal, buffer));
+        llegirEnters(canal, buffer, matriu.getData(), 0, matriu.getData().length);
+        return matriu;
+    }
+
+    /**
+     * Llegeix i valida la capçalera d'una matriu.
+     * @param canal Canal d'entrada.
+     * @param buffer Buffer directe de treball.
+     * @return Mida de la matriu, entre 0 i {@value #MIDA_MAXIMA}.
+     * @throws EOFException Si el canal s'acaba abans d'hora.
+     * @throws IOException Si falla la lectura o la capçalera no és vàlida.
+     */
+    public static int llegirCapcalera(ReadableByteChannel canal, ByteBuffer buffer) throws IOException {
+        int[] capcalera = new int[2];
+        llegirEnters(canal, buffer, capcalera, 0, 2);
+        if (capcalera[0] != MAGIC || capcalera[1] < 0 || capcalera[1] > MIDA_MAXIMA) {
+            throw new IOException("Capçalera de matriu no vàlida");
+        }
+        return capcalera[1];
+    }
+
+    /**
+     * Desa una matriu en un fitxer.
+     * @param matriu Matriu a desar.
+     * @param fitxer Fitxer de destinació (se sobreescriu).
+     * @throws IOException Si falla l'escriptura.
+     */
+    public static void desar(Matriu matriu, Path fitxer) throws IOException {
+        try (FileChannel canal = FileChannel.open(fitxer, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            escriure(matriu, canal, nouBuffer());
+        }
+    }
+
+    /**
+     * Carrega una matriu d'un fitxer.
+     * @param fitxer Fitxer d'origen.
+     * @return Matriu carregada.
+     * @throws IOException Si falla la lectura.
+     */
+    public static Matriu carregar(Path fitxer) throws IOException {
+        try (FileChannel canal = FileChannel.open(fitxer, StandardOpenOption.READ)) {
+            return llegir(canal, nouBuffer());
+        }
+    }
+
+    /**
+     * Escriu un tram d'enters passant pel buffer per trossos.
+     * @param canal Canal de sortida.
+     * @param buffer Buffer directe de treball.
+     * @param dades Vector d'origen.
+     * @param inici Primera posició.
+     * @param longitud Nombre d'enters.
+     * @throws IOException Si falla l'escriptura.
+     */
+    public static void escriureEnters(WritableByteChannel canal, ByteBuffer buffer, int[] dades,
+                                      int inici, int longitud) throws IOException {
+        int capacitat = buffer.capacity() / Integer.BYTES;
+        for (int fet = 0; fet < longitud; ) {
+            int tros = Math.min(capacitat, longitud - fet);
+            buffer.clear();
+            buffer.asIntBuffer().put(dades, inici + fet, tros);
+            buffer.limit(tros * Integer.BYTES);
+            buidar(canal, buffer);
+            fet += tros;
+        }
+    }
+
+    /**
+     * Llegeix un tram d'enters passant pel buffer per trossos.
+     * @param canal Canal d'entrada.
+     * @param buffer Buffer directe de treball.
+     * @param desti Vector de destinació.
+     * @param inici Primera posició.
+     * @param longitud Nombre d'enters.
+     * @throws IOException Si falla la lectura o el canal s'acaba abans d'hora.
+     */
+    public static void llegirEnters(ReadableByteChannel canal, ByteBuffer buffer, int[] desti,
+                                    int inici, int longitud) throws IOException {
+        int capacitat = buffer.capacity() / Integer.BYTES;
+        for (int fet = 0; fet < longitud; ) {
+            int tros = Math.min(capacitat, longitud - fet);
+            buffer.clear();
+            buffer.limit(tros * Integer.BYTES);
+            omplir(canal, buffer);
+            buffer.flip();
+            buffer.asIntBuffer().get(desti, inici + fet, tros);
+            fet += tros;
+        }
+    }
+
+    /**
+     * Llegeix i descarta enters sense reservar-los, per saltar les dades d'una matriu rebutjada.
+     * @param canal Canal d'entrada.
+     * @param buffer Buffer directe de treball.
+     * @param longitud Nombre d'enters.
+     * @throws IOException Si falla la lectura o el canal s'acaba abans d'hora.
+     */
+    public static void descartarEnters(ReadableByteChannel canal, ByteBuffer buffer, long longitud)
+            throws IOException {
+        long capacitat = buffer.capacity() / Integer.BYTES;
+        for (long fet = 0; fet < longitud; ) {
+            long tros = Math.min(capacitat, longitud - fet);
+            buffer.clear();
+            buffer.limit((int) tros * Integer.BYTES);
+            omplir(canal, buffer);
+            fet += tros;
+        }
+    }
+
+    /**
+     * Escriu tot el contingut pendent del buffer.
+     * @param canal Canal de sortida.
+     * @param buffer Buffer amb posició i límit preparats.
+     * @throws IOException Si falla l'escriptura.
+     */
+    public static void buidar(WritableByteChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    /**
+     * Llegeix fins a omplir el buffer fins al seu límit.
+     * @param canal Canal d'entrada.
+     * @param buffer Buffer amb posició i límit preparats.
+     * @throws IOException Si falla la lectura o el canal s'acaba abans d'hora.
+     */
+    public static void omplir(ReadableByteChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer) < 0) {
+                throw new EOFException("Canal tancat abans d'hora");
+            }
+        }
+    }
+}
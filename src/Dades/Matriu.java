@@ -1,12 +1,13 @@
 package Dades;
 
-import java.util.Random;
-import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
  * Representa una matriu amb operacions bàsiques.
  */
 public class Matriu {
+    private static final int ELEMENTS_PER_BLOC_GENERACIO = 1 << 14;
+
     private final int size;
     private final int[] data;
 
@@ -16,13 +17,49 @@ public class Matriu {
     }
 
     /**
-     * Inicialitza la matriu amb valors aleatoris.
+     * Inicialitza la matriu amb valors aleatoris uniformes de tot el rang dels enters i una llavor nova.
      */
     public void initRandom() {
-        Random random = new Random();
-        for (int i = 0; i < data.length; i++) {
-            data[i] = random.nextInt();
+        initRandom(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Inicialitza la matriu de manera reproduïble amb valors uniformes de tot el rang dels enters.
+     * @param llavor Llavor del generador.
+     */
+    public void initRandom(long llavor) {
+        initRandom(llavor, Distribucio.UNIFORME, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Inicialitza la matriu en paral·lel de manera reproduïble.
+     * Les dades es divideixen en blocs de {@value #ELEMENTS_PER_BLOC_GENERACIO} elements i cada bloc rep un flux
+     * obtingut amb {@link SplittableRandom#split()} en ordre seqüencial. Com que els blocs només depenen de la
+     * mida, el resultat és idèntic bit a bit sigui quin sigui el nombre de fils.
+     * @param llavor Llavor del generador.
+     * @param distribucio Distribució dels valors.
+     * @param limit Valor absolut màxim dels valors generats.
+     */
+    public void initRandom(long llavor, Distribucio distribucio, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("El límit ha de ser no negatiu");
         }
+
+        int numBlocs = (data.length + ELEMENTS_PER_BLOC_GENERACIO - 1) / ELEMENTS_PER_BLOC_GENERACIO;
+        SplittableRandom arrel = new SplittableRandom(llavor);
+        SplittableRandom[] fluxos = new SplittableRandom[numBlocs];
+        for (int b = 0; b < numBlocs; b++) {
+            fluxos[b] = arrel.split();
+        }
+
+        PlanificadorExecucio.global().perCada(numBlocs, b -> {
+            SplittableRandom random = fluxos[b];
+            int inici = b * ELEMENTS_PER_BLOC_GENERACIO;
+            int fi = Math.min(inici + ELEMENTS_PER_BLOC_GENERACIO, data.length);
+            for (int i = inici; i < fi; i++) {
+                data[i] = distribucio.generar(random, limit);
+            }
+        });
     }
 
     public int get(int i, int j) {
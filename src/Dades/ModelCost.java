@@ -0,0 +1,127 @@
+package Dades;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Model de cost dels motors de multiplicació ajustat amb els temps mesurats.
+ * <p>
+ * Per a cada combinació de motor, classe de densitat i nombre de fils s'ajusta per mínims quadrats
+ * t ≈ c0 + c1·(n/1000)^e, on e és l'{@linkplain EstrategiaMultiplicacio#getExponent() exponent} del motor:
+ * c1 és el temps previst sense cost fix per a n = 1000, és a dir, 1000^e vegades la constant oculta t/n^e (per a
+ * e = 3, 10⁹ vegades la que mostra la gràfica de constants), i c0 recull el cost fix. L'escala només evita
+ * coeficients massa petits. Amb una sola mida mesurada, c0 = 0.
+ */
+public class ModelCost {
+    private static final double ESCALA = 1000.0;
+
+    private final Map<String, Ajust> ajustos = new TreeMap<>();
+
+    /**
+     * Sumes de la regressió lineal d'una combinació.
+     */
+    private static class Ajust {
+        long mostres;
+        double sx, sy, sxx, sxy;
+        double xMinim = Double.MAX_VALUE, xMaxim = 0;
+
+        void afegir(double x, double y) {
+            mostres++;
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+            xMinim = Math.min(xMinim, x);
+            xMaxim = Math.max(xMaxim, x);
+        }
+
+        /**
+         * @return {c0, c1}.
+         */
+        double[] coeficients() {
+            if (mostres > 1 && xMaxim > xMinim) {
+                double c1 = (mostres * sxy - sx * sy) / (mostres * sxx - sx * sx);
+                double c0 = (sy - c1 * sx) / mostres;
+                if (c1 > 0 && c0 >= 0) {
+                    return new double[]{c0, c1};
+                }
+            }
+            return new double[]{0, sxy / sxx};
+        }
+    }
+
+    /**
+     * Classe de densitat d'unes matrius: 0 denses, 1 disperses, 2 molt disperses.
+     * @param densitat Fracció d'elements no nuls.
+     * @return Classe de densitat.
+     */
+    public static int classeDensitat(double densitat) {
+        return densitat >= 0.5 ? 0 : densitat >= 0.05 ? 1 : 2;
+    }
+
+    /**
+     * Estima la fracció d'elements no nuls a partir d'una mostra repartida uniformement.
+     * @param matriu Matriu a mostrejar.
+     * @return Densitat estimada entre 0 i 1.
+     */
+    public static double densitat(Matriu matriu) {
+        int[] dades = matriu.getData();
+        if (dades.length == 0) return 0;
+        int pas = Math.max(1, dades.length / 4096);
+        int mostres = 0;
+        int noNuls = 0;
+        for (int i = 0; i < dades.length; i += pas) {
+            mostres++;
+            if (dades[i] != 0) noNuls++;
+        }
+        return (double) noNuls / mostres;
+    }
+
+    /**
+     * Afegeix una mesura al model.
+     * @param motor Motor mesurat.
+     * @param n Mida de les matrius.
+     * @param densitat Densitat de les entrades.
+     * @param fils Fils disponibles per al motor.
+     * @param ms Temps mesurat en mil·lisegons.
+     */
+    public synchronized void registrar(EstrategiaMultiplicacio motor, int n, double densitat, int fils, double ms) {
+        ajustos.computeIfAbsent(clau(motor, densitat, fils), k -> new Ajust()).afegir(x(motor, n), ms);
+    }
+
+    /**
+     * Prediu el temps d'un motor.
+     * @param motor Motor.
+     * @param n Mida de les matrius.
+     * @param densitat Densitat de les entrades.
+     * @param fils Fils disponibles.
+     * @return Temps previst en mil·lisegons, o {@link Double#NaN} si no hi ha mesures per a la combinació.
+     */
+    public synchronized double predir(EstrategiaMultiplicacio motor, int n, double densitat, int fils) {
+        Ajust ajust = ajustos.get(clau(motor, densitat, fils));
+        if (ajust == null) return Double.NaN;
+        double[] c = ajust.coeficients();
+        return c[0] + c[1] * x(motor, n);
+    }
+
+    /**
+     * @return Una línia per combinació amb el nombre de mostres, c0 i c1 expressat com el temps previst a n = 1000.
+     */
+    public synchronized String descriure() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Ajust> entrada : ajustos.entrySet()) {
+            double[] c = entrada.getValue().coeficients();
+            text.append(String.format("%s: samples=%d c0=%.3fms c1=%.4gms at n=1000%n",
+                    entrada.getKey(), entrada.getValue().mostres, c[0], c[1]));
+        }
+        return text.toString();
+    }
+
+    private static String clau(EstrategiaMultiplicacio motor, double densitat, int fils) {
+        return motor.getNom() + " density=" + classeDensitat(densitat) + " threads=" + fils;
+    }
+
+    private static double x(EstrategiaMultiplicacio motor, int n) {
+        return Math.pow(n / ESCALA, motor.getExponent());
+    }
+}
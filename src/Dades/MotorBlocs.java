@@ -0,0 +1,44 @@
+package Dades;
+
+/**
+ * Multiplicació clàssica per blocs de {@value Multiplicacio#UMBRAL_STRASSEN}×{@value Multiplicacio#UMBRAL_STRASSEN},
+ * amb una tasca per franja de files de blocs. És el mateix nucli que el cas base de {@link Multiplicacio}, però
+ * paral·lelitzat directament sobre la matriu sencera.
+ */
+public class MotorBlocs implements EstrategiaMultiplicacio {
+
+    @Override
+    public String getNom() {
+        return "Tiled";
+    }
+
+    @Override
+    public double getExponent() {
+        return 3;
+    }
+
+    @Override
+    public Matriu multiplicar(Matriu a, Matriu b, TokenCancellacio token, PlanificadorExecucio.Feina feina)
+            throws InterruptedException {
+        int n = a.getSize();
+        int bloc = Multiplicacio.UMBRAL_STRASSEN;
+        Matriu c = new Matriu(n);
+        int[] aData = a.getData();
+        int[] bData = b.getData();
+        int[] cData = c.getData();
+        token.preveure((long) n * n * n);
+
+        feina.perCada((n + bloc - 1) / bloc, f -> {
+            if (token.isCancellat()) return;
+            int i = f * bloc;
+            for (int j = 0; j < n; j += bloc) {
+                for (int k = 0; k < n; k += bloc) {
+                    Multiplicacio.processarTile(aData, bData, cData, n, i, j, k);
+                }
+            }
+            token.completar((long) (Math.min(i + bloc, n) - i) * n * n);
+        });
+        token.comprovar();
+        return c;
+    }
+}
@@ -0,0 +1,51 @@
+package Dades;
+
+/**
+ * Multiplicació clàssica de tres bucles (i, j, k) sense blocs, repartida per franges de files. Serveix de
+ * referència: cada producte escalar recorre una columna de B amb salts de n elements.
+ */
+public class MotorIngenu implements EstrategiaMultiplicacio {
+    private static final int FRANGES_PER_FIL = 4;
+
+    @Override
+    public String getNom() {
+        return "Naive";
+    }
+
+    @Override
+    public double getExponent() {
+        return 3;
+    }
+
+    @Override
+    public Matriu multiplicar(Matriu a, Matriu b, TokenCancellacio token, PlanificadorExecucio.Feina feina)
+            throws InterruptedException {
+        int n = a.getSize();
+        Matriu c = new Matriu(n);
+        int[] aData = a.getData();
+        int[] bData = b.getData();
+        int[] cData = c.getData();
+        token.preveure((long) n * n * n);
+
+        int franges = Math.min(n, feina.getMaxParallelisme() * FRANGES_PER_FIL);
+        int filesPerFranja = (n + franges - 1) / Math.max(1, franges);
+        feina.perCada(franges, f -> {
+            int inici = f * filesPerFranja;
+            int fi = Math.min(inici + filesPerFranja, n);
+            // Una franja sencera pot durar minuts amb n gran: el token es consulta a cada fila
+            for (int i = inici; i < fi; i++) {
+                if (token.isCancellat()) return;
+                for (int j = 0; j < n; j++) {
+                    int suma = 0;
+                    for (int k = 0; k < n; k++) {
+                        suma += aData[i * n + k] * bData[k * n + j];
+                    }
+                    cData[i * n + j] = suma;
+                }
+                token.completar((long) n * n);
+            }
+        });
+        token.comprovar();
+        return c;
+    }
+}
@@ -0,0 +1,170 @@
+package Dades;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Multiplicació recursiva indiferent a la cache (cache-oblivious): C += A·B es divideix per la meitat de la
+ * dimensió més gran (files de C, columnes de C o la dimensió interna) fins a un cas base petit. Així, a cada nivell
+ * de la jerarquia de memòria hi ha un nivell de recursió els blocs del qual hi caben, sense cap mida de bloc
+ * ajustada a una màquina concreta; el cas base només amortitza el cost de la recursió.
+ * <p>
+ * Les subtasques treballen sobre vistes (desplaçament i pas de fila) del vector de cada {@link Matriu}, sense
+ * còpies. Les divisions per files o columnes de C són independents i es fan en paral·lel dins la {@link
+ * PlanificadorExecucio.Feina feina}; la divisió de la dimensió interna acumula sobre el mateix bloc de C i es fa
+ * en seqüència.
+ */
+public class MotorRecursiu implements EstrategiaMultiplicacio {
+    /** Productes escalars màxims del cas base (64³). */
+    private static final long OPERACIONS_CAS_BASE = 1L << 18;
+    /** Productes escalars mínims d'una subtasca perquè valgui la pena fer-ne fork. */
+    private static final long OPERACIONS_FORK = 1L << 20;
+
+    @Override
+    public String getNom() {
+        return "Recursive";
+    }
+
+    @Override
+    public double getExponent() {
+        return 3;
+    }
+
+    @Override
+    public Matriu multiplicar(Matriu a, Matriu b, TokenCancellacio token, PlanificadorExecucio.Feina feina) {
+        int n = a.getSize();
+        Matriu c = new Matriu(n);
+        token.preveure((long) n * n * n);
+        Producte arrel = new Producte(
+                new Vista(a.getData(), 0, n), new Vista(b.getData(), 0, n), new Vista(c.getData(), 0, n),
+                n, n, n, token, feina);
+        feina.getPlanificador().invocar(arrel);
+        token.comprovar();
+        return c;
+    }
+
+    /**
+     * Submatriu d'un vector per files: l'element (i, j) és {@code dades[inici + i * pas + j]}.
+     */
+    private static final class Vista {
+        final int[] dades;
+        final int inici;
+        final int pas;
+
+        Vista(int[] dades, int inici, int pas) {
+            this.dades = dades;
+            this.inici = inici;
+            this.pas = pas;
+        }
+
+        Vista desplacar(int files, int columnes) {
+            return new Vista(dades, inici + files * pas + columnes, pas);
+        }
+    }
+
+    /**
+     * C[m×n] += A[m×k]·B[k×n] sobre vistes.
+     */
+    private static final class Producte extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Vista a, b, c;
+        private final int m, n, k;
+        private final TokenCancellacio token;
+        private final PlanificadorExecucio.Feina feina;
+        private boolean placaReservada = false;
+
+        Producte(Vista a, Vista b, Vista c, int m, int n, int k, TokenCancellacio token,
+                 PlanificadorExecucio.Feina feina) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.m = m;
+            this.n = n;
+            this.k = k;
+            this.token = token;
+            this.feina = feina;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                calcular();
+            } finally {
+                alliberarPlaca();
+            }
+        }
+
+        private synchronized void alliberarPlaca() {
+            if (placaReservada) {
+                placaReservada = false;
+                feina.alliberar();
+            }
+        }
+
+        private void calcular() {
+            long operacions = (long) m * n * k;
+            if (operacions <= OPERACIONS_CAS_BASE) {
+                if (token.isCancellat()) return;
+                casBase();
+                token.completar(operacions);
+                return;
+            }
+            if (operacions >= OPERACIONS_FORK) {
+                token.comprovar();
+            }
+
+            if (k >= m && k >= n) {
+                // La dimensió interna acumula sobre el mateix bloc de C: en seqüència
+                int k1 = k / 2;
+                new Producte(a, b, c, m, n, k1, token, feina).calcular();
+                new Producte(a.desplacar(0, k1), b.desplacar(k1, 0), c, m, n, k - k1, token, feina).calcular();
+                return;
+            }
+
+            Producte primer;
+            Producte segon;
+            if (m >= n) {
+                int m1 = m / 2;
+                primer = new Producte(a, b, c, m1, n, k, token, feina);
+                segon = new Producte(a.desplacar(m1, 0), b, c.desplacar(m1, 0), m - m1, n, k, token, feina);
+            } else {
+                int n1 = n / 2;
+                primer = new Producte(a, b, c, m, n1, k, token, feina);
+                segon = new Producte(a, b.desplacar(0, n1), c.desplacar(0, n1), m, n - n1, k, token, feina);
+            }
+
+            if (operacions / 2 >= OPERACIONS_FORK && feina.reservar()) {
+                segon.placaReservada = true;
+                segon.fork();
+                try {
+                    primer.calcular();
+                } catch (RuntimeException | Error e) {
+                    if (segon.cancel(true)) segon.alliberarPlaca();
+                    throw e;
+                }
+                segon.join();
+            } else {
+                primer.calcular();
+                segon.calcular();
+            }
+        }
+
+        private void casBase() {
+            long inici = System.nanoTime();
+            int[] dadesA = a.dades, dadesB = b.dades, dadesC = c.dades;
+            for (int i = 0; i < m; i++) {
+                int filaA = a.inici + i * a.pas;
+                int filaC = c.inici + i * c.pas;
+                for (int p = 0; p < k; p++) {
+                    int valor = dadesA[filaA + p];
+                    if (valor == 0) continue;
+                    int filaB = b.inici + p * b.pas;
+                    for (int j = 0; j < n; j++) {
+                        dadesC[filaC + j] += valor * dadesB[filaB + j];
+                    }
+                }
+            }
+            feina.registrarOcupat(System.nanoTime() - inici);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package Dades;
+
+/**
+ * Strassen amb fork/join ({@link Multiplicacio}), amb la profunditat més gran que el {@link PlanificadorMemoria}
+ * preveu que cap al heap disponible. No demana cap recollida: qui vulgui el heap net l'ha de planificar abans.
+ * Si no hi cap cap nivell de Strassen, la multiplicació es fa amb el {@link MotorBlocs} paral·lel, i
+ * {@link #usaAlternativa(int)} ho indica perquè el temps no es compti com una mostra de Strassen.
+ */
+public class MotorStrassen implements EstrategiaMultiplicacio {
+    private static final double LOG2_7 = Math.log(7) / Math.log(2);
+
+    private final MotorBlocs alternativa = new MotorBlocs();
+
+    @Override
+    public String getNom() {
+        return "Strassen";
+    }
+
+    @Override
+    public double getExponent() {
+        return LOG2_7;
+    }
+
+    @Override
+    public Matriu multiplicar(Matriu a, Matriu b, TokenCancellacio token, PlanificadorExecucio.Feina feina)
+            throws InterruptedException {
+        // Sense la recollida de planificar(n): el temps mesurat dels motors no ha d'incloure un GC complet
+        PlanificadorMemoria.Pla pla = PlanificadorMemoria.planificar(a.getSize(), PlanificadorMemoria.pressupostDisponible());
+        if (pla.getMaxProfunditat() < 0) {
+            return alternativa.multiplicar(a, b, token, feina);
+        }
+        return new Multiplicacio(a, b, pla.getMaxProfunditat(), token, feina).compute();
+    }
+
+    @Override
+    public long bytesPrevistos(int n) {
+        if (usaAlternativa(n)) {
+            return alternativa.bytesPrevistos(n);
+        }
+        return PlanificadorMemoria.planificar(n, PlanificadorMemoria.pressupostDisponible()).getBytesPrevistos();
+    }
+
+    @Override
+    public boolean usaAlternativa(int n) {
+        return PlanificadorMemoria.planificar(n, PlanificadorMemoria.pressupostDisponible()).getMaxProfunditat() < 0;
+    }
+}
@@ -1,19 +1,24 @@
 package Dades;
 
-import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveTask;
 
 /**
- * Implementa la multiplicació de matrius amb l'algorisme de Strassen i paral·lelisme mitjançant ForkJoinPool.
+ * Implementa la multiplicació de matrius amb l'algorisme de Strassen i paral·lelisme mitjançant el
+ * {@link PlanificadorExecucio}. Si {@link #compute()} es crida des de fora del pool del planificador, la tasca s'hi
+ * trasllada abans de començar.
  */
 public class Multiplicacio extends RecursiveTask<Matriu> {
-    private static final int UMBRAL_STRASSEN = 64;
-    private static final int MAX_PROFUNDITAT = 3;
-    private static final ForkJoinPool pool = new ForkJoinPool();
+    static final int UMBRAL_STRASSEN = 64;
+    static final int MAX_PROFUNDITAT = 3;
 
     private final Matriu A;
     private final Matriu B;
     private final int profunditat;
+    private final int maxProfunditat;
+    private final TokenCancellacio token;
+    private final PlanificadorExecucio.Feina feina;
+    private boolean placaReservada = false;
+    private long encuada = 0;
 
     /**
      * Constructor públic per a ús extern
@@ -21,13 +26,54 @@ public class Multiplicacio extends RecursiveTask<Matriu> {
      * @param B Matriu B
      */
     public Multiplicacio(Matriu A, Matriu B) {
-        this(A, B, 0);
+        this(A, B, new TokenCancellacio());
     }
 
-    private Multiplicacio(Matriu A, Matriu B, int profunditat) {
+    /**
+     * Constructor públic amb cancel·lació cooperativa. Les subtasques comproven el token abans de cada nivell
+     * i de cada franja de files del cas base.
+     * @param A Matriu A
+     * @param B Matriu B
+     * @param token Token de cancel·lació i progrés
+     */
+    public Multiplicacio(Matriu A, Matriu B, TokenCancellacio token) {
+        this(A, B, MAX_PROFUNDITAT, token);
+    }
+
+    /**
+     * Constructor públic amb profunditat de Strassen limitada, per exemple segons un {@link PlanificadorMemoria.Pla}.
+     * @param A Matriu A
+     * @param B Matriu B
+     * @param maxProfunditat Darrer nivell que aplica Strassen (-1 per fer només la multiplicació clàssica)
+     * @param token Token de cancel·lació i progrés
+     */
+    public Multiplicacio(Matriu A, Matriu B, int maxProfunditat, TokenCancellacio token) {
+        this(A, B, maxProfunditat, token, null);
+    }
+
+    /**
+     * Constructor públic dins d'una feina del planificador: només es fa fork de les subtasques mentre la feina
+     * té places lliures, i el temps dels casos base i l'espera de les subtasques queden a les seves mètriques.
+     * @param A Matriu A
+     * @param B Matriu B
+     * @param maxProfunditat Darrer nivell que aplica Strassen (-1 per fer només la multiplicació clàssica)
+     * @param token Token de cancel·lació i progrés
+     * @param feina Feina del planificador (null per fer fork sense límit al planificador global)
+     */
+    public Multiplicacio(Matriu A, Matriu B, int maxProfunditat, TokenCancellacio token,
+                         PlanificadorExecucio.Feina feina) {
+        this(A, B, 0, maxProfunditat, token, feina);
+        token.preveure(treballEstimat(A.getSize(), 0, maxProfunditat));
+    }
+
+    private Multiplicacio(Matriu A, Matriu B, int profunditat, int maxProfunditat, TokenCancellacio token,
+                          PlanificadorExecucio.Feina feina) {
         this.A = A;
         this.B = B;
         this.profunditat = profunditat;
+        this.maxProfunditat = maxProfunditat;
+        this.token = token;
+        this.feina = feina;
     }
 
     /**
@@ -36,13 +82,67 @@ public class Multiplicacio extends RecursiveTask<Matriu> {
      */
     @Override
     public Matriu compute() {
+        PlanificadorExecucio planificador = feina != null ? feina.getPlanificador() : PlanificadorExecucio.global();
+        if (!planificador.esFilPropi()) {
+            return planificador.invocar(this);
+        }
+        if (encuada != 0 && feina != null) {
+            feina.registrarEspera(System.nanoTime() - encuada);
+        }
+        try {
+            return calcular();
+        } finally {
+            alliberarPlaca();
+        }
+    }
+
+    /**
+     * Retorna a la feina la plaça reservada en fer fork d'aquesta subtasca, com a molt una vegada.
+     */
+    private synchronized void alliberarPlaca() {
+        if (placaReservada) {
+            placaReservada = false;
+            feina.alliberar();
+        }
+    }
+
+    private Matriu calcular() {
+        EsdevenimentMultiplicacio esdeveniment = new EsdevenimentMultiplicacio();
+        esdeveniment.begin();
+
+        token.comprovar();
         int mida = A.getSize();
 
         // Cas base: multiplicació clàssica
-        if (mida <= UMBRAL_STRASSEN || profunditat > MAX_PROFUNDITAT) {
-            return multiplicacioClassicaOptimitzada(A, B);
+        boolean casBase = mida <= UMBRAL_STRASSEN || profunditat > maxProfunditat;
+        Matriu resultat;
+        if (casBase) {
+            long inici = System.nanoTime();
+            resultat = multiplicacioClassicaOptimitzada(A, B);
+            if (feina != null) {
+                feina.registrarOcupat(System.nanoTime() - inici);
+            }
+        } else {
+            resultat = strassen();
         }
 
+        esdeveniment.end();
+        if (esdeveniment.shouldCommit()) {
+            esdeveniment.mida = mida;
+            esdeveniment.motor = casBase ? "Classica" : "Strassen";
+            esdeveniment.profunditat = profunditat;
+            esdeveniment.fils = feina != null ? feina.getMaxParallelisme() : getPool().getParallelism();
+            esdeveniment.bytesReservats = casBase ? (long) mida * mida * Integer.BYTES : bytesTemporalsStrassen(mida);
+            esdeveniment.commit();
+        }
+        return resultat;
+    }
+
+    /**
+     * Executa un nivell de l'algorisme de Strassen i delega els set productes a subtasques.
+     * @return Matriu resultant de la multiplicació.
+     */
+    private Matriu strassen() {
         // Ajustar mida imparella
         Matriu[] ajustades = ajustarMida(A, B);
         Matriu A_ajustada = ajustades[0];
@@ -55,29 +155,47 @@ public class Multiplicacio extends RecursiveTask<Matriu> {
 
         // Crear subtasques amb control de profunditat
         Multiplicacio[] tasques = {
-                new Multiplicacio(subA[0].add(subA[3]), subB[0].add(subB[3]), profunditat + 1),
-                new Multiplicacio(subA[2].add(subA[3]), subB[0], profunditat + 1),
-                new Multiplicacio(subA[0], subB[1].subtract(subB[3]), profunditat + 1),
-                new Multiplicacio(subA[3], subB[2].subtract(subB[0]), profunditat + 1),
-                new Multiplicacio(subA[0].add(subA[1]), subB[3], profunditat + 1),
-                new Multiplicacio(subA[2].subtract(subA[0]), subB[0].add(subB[1]), profunditat + 1),
-                new Multiplicacio(subA[1].subtract(subA[3]), subB[2].add(subB[3]), profunditat + 1)
+                new Multiplicacio(subA[0].add(subA[3]), subB[0].add(subB[3]), profunditat + 1, maxProfunditat, token, feina),
+                new Multiplicacio(subA[2].add(subA[3]), subB[0], profunditat + 1, maxProfunditat, token, feina),
+                new Multiplicacio(subA[0], subB[1].subtract(subB[3]), profunditat + 1, maxProfunditat, token, feina),
+                new Multiplicacio(subA[3], subB[2].subtract(subB[0]), profunditat + 1, maxProfunditat, token, feina),
+                new Multiplicacio(subA[0].add(subA[1]), subB[3], profunditat + 1, maxProfunditat, token, feina),
+                new Multiplicacio(subA[2].subtract(subA[0]), subB[0].add(subB[1]), profunditat + 1, maxProfunditat, token, feina),
+                new Multiplicacio(subA[1].subtract(subA[3]), subB[2].add(subB[3]), profunditat + 1, maxProfunditat, token, feina)
         };
 
-        // Fork de les dues primeres tasques
-        tasques[0].fork();
-        tasques[1].fork();
+        // Fork de les dues primeres tasques si la feina té places; si no, es calculen aquí
+        boolean[] forkades = new boolean[2];
+        for (int t = 0; t < 2; t++) {
+            forkades[t] = feina == null || feina.reservar();
+            if (forkades[t]) {
+                tasques[t].placaReservada = feina != null;
+                tasques[t].encuada = System.nanoTime();
+                tasques[t].fork();
+            }
+        }
 
-        // Computar les altres seqüencialment
-        Matriu P3 = tasques[2].compute();
-        Matriu P4 = tasques[3].compute();
-        Matriu P5 = tasques[4].compute();
-        Matriu P6 = tasques[5].compute();
-        Matriu P7 = tasques[6].compute();
+        // Computar les altres seqüencialment; si s'aturen, cancel·lar també les tasques fork
+        Matriu P3, P4, P5, P6, P7;
+        try {
+            P3 = tasques[2].compute();
+            P4 = tasques[3].compute();
+            P5 = tasques[4].compute();
+            P6 = tasques[5].compute();
+            P7 = tasques[6].compute();
+        } catch (RuntimeException | Error e) {
+            for (int t = 0; t < 2; t++) {
+                // Una subtasca cancel·lada abans de començar no alliberaria la seva plaça
+                if (forkades[t] && tasques[t].cancel(true)) {
+                    tasques[t].alliberarPlaca();
+                }
+            }
+            throw e;
+        }
 
         // Esperar resultats de les tasques fork
-        Matriu P1 = tasques[0].join();
-        Matriu P2 = tasques[1].join();
+        Matriu P1 = forkades[0] ? tasques[0].join() : tasques[0].compute();
+        Matriu P2 = forkades[1] ? tasques[1].join() : tasques[1].compute();
 
         // Combinar resultats
         Matriu C11 = P1.add(P4).subtract(P5).add(P7);
@@ -89,6 +207,37 @@ public class Multiplicacio extends RecursiveTask<Matriu> {
         return retallarSiCal(resultat, A.getSize());
     }
 
+    /**
+     * Estima el treball total (en productes escalars) que faran els casos base d'una multiplicació.
+     * @param mida Mida de les matrius.
+     * @param profunditat Profunditat inicial.
+     * @param maxProfunditat Darrer nivell que aplica Strassen.
+     * @return Unitats de treball previstes.
+     */
+    private static long treballEstimat(int mida, int profunditat, int maxProfunditat) {
+        if (mida <= UMBRAL_STRASSEN || profunditat > maxProfunditat) {
+            return (long) mida * mida * mida;
+        }
+        return 7 * treballEstimat((mida + mida % 2) / 2, profunditat + 1, maxProfunditat);
+    }
+
+    /**
+     * Estima els bytes que reserva un nivell de Strassen sense comptar els subnivells:
+     * 8 submatrius, 10 sumes/restes d'entrada, 8 combinacions, la matriu combinada i, si la mida és
+     * imparella, les dues còpies amb padding i la matriu retallada.
+     * @param mida Mida de les matrius d'entrada del nivell.
+     * @return Bytes reservats pel nivell.
+     */
+    static long bytesTemporalsStrassen(int mida) {
+        long novaMida = mida + (mida % 2);
+        long meitat = novaMida / 2;
+        long enters = 26 * meitat * meitat + novaMida * novaMida;
+        if (novaMida != mida) {
+            enters += 2 * novaMida * novaMida + (long) mida * mida;
+        }
+        return enters * Integer.BYTES;
+    }
+
     /**
      * Multiplicació clàssica optimitzada amb tècnica de tiling per a millorar l'accés a la cache.
      * @param a Matriu A.
@@ -103,11 +252,13 @@ public class Multiplicacio extends RecursiveTask<Matriu> {
         int[] cData = resultat.getData();
 
         for (int i = 0; i < n; i += UMBRAL_STRASSEN) {
+            token.comprovar();
             for (int j = 0; j < n; j += UMBRAL_STRASSEN) {
                 for (int k = 0; k < n; k += UMBRAL_STRASSEN) {
                     processarTile(aData, bData, cData, n, i, j, k);
                 }
             }
+            token.completar((long) (Math.min(i + UMBRAL_STRASSEN, n) - i) * n * n);
         }
         return resultat;
     }
@@ -122,7 +273,7 @@ public class Multiplicacio extends RecursiveTask<Matriu> {
      * @param jBase Índex inicial de columna.
      * @param kBase Índex inicial per a la suma.
      */
-    private void processarTile(int[] a, int[] b, int[] c, int n, int iBase, int jBase, int kBase) {
+    static void processarTile(int[] a, int[] b, int[] c, int n, int iBase, int jBase, int kBase) {
         int iLimit = Math.min(iBase + UMBRAL_STRASSEN, n);
         int jLimit = Math.min(jBase + UMBRAL_STRASSEN, n);
         int kLimit = Math.min(kBase + UMBRAL_STRASSEN, n);
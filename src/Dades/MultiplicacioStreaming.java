@@ -0,0 +1,297 @@
+package Dades;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Multiplicació en flux: els panells de files d'A arriben d'un iterador o d'un canal, es multipliquen contra una
+ * matriu B resident i cada panell de sortida s'emet tan bon punt està calculat.
+ * <p>
+ * B pot ser quadrada o tenir poques columnes (n×m); amb m = 1 és un producte matriu-vector. La lectura del
+ * panell següent es fa en un fil a part mentre es calcula l'actual, de manera que l'entrada i el càlcul se
+ * superposen. Cada panell es reparteix entre els fils per grups de files i, si B és ampla, per franges de
+ * columnes.
+ */
+public class MultiplicacioStreaming {
+    private static final int OPERACIONS_PER_TASCA = 1 << 16;
+    private static final int COLUMNES_PER_FRANJA = 256;
+
+    private final int[] b;
+    private final int files;
+    private final int columnes;
+
+    /**
+     * Multiplicació contra una matriu quadrada resident.
+     * @param b Matriu B.
+     */
+    public MultiplicacioStreaming(Matriu b) {
+        this(b.getData(), b.getSize(), b.getSize());
+    }
+
+    /**
+     * Multiplicació contra una matriu B de n×m desada per files.
+     * @param b Valors de B.
+     * @param files Files de B (columnes dels panells d'A).
+     * @param columnes Columnes de B.
+     */
+    public MultiplicacioStreaming(int[] b, int files, int columnes) {
+        if ((long) files * columnes > b.length) {
+            throw new IllegalArgumentException("B no té " + files + "x" + columnes + " elements");
+        }
+        this.b = b;
+        this.files = files;
+        this.columnes = columnes;
+    }
+
+    /**
+     * Producte matriu-vector y = A·x.
+     * @param a Matriu A.
+     * @param x Vector de n elements.
+     * @return Vector resultat.
+     */
+    public static int[] gemv(Matriu a, int[] x) {
+        return gemm(a, x, 1);
+    }
+
+    /**
+     * Producte d'A per una matriu de poques columnes, Y = A·X.
+     * @param a Matriu A (n×n).
+     * @param x Valors de X (n×m) per files.
+     * @param columnes Columnes de X (m).
+     * @return Valors de Y (n×m) per files.
+     */
+    public static int[] gemm(Matriu a, int[] x, int columnes) {
+        return new MultiplicacioStreaming(x, a.getSize(), columnes).multiplicar(Panell.de(a)).getDades();
+    }
+
+    /**
+     * Multiplica un panell de files d'A per B.
+     * @param panell Panell amb tantes columnes com files té B.
+     * @return Panell de sortida amb les mateixes files i les columnes de B.
+     */
+    public Panell multiplicar(Panell panell) {
+        if (panell.getColumnes() != files) {
+            throw new IllegalArgumentException("El panell ha de tenir " + files + " columnes");
+        }
+        int filesPanell = panell.getFiles();
+        int[] a = panell.getDades();
+        int[] c = new int[filesPanell * columnes];
+
+        int franges = columnes >= 2 * COLUMNES_PER_FRANJA ? (columnes + COLUMNES_PER_FRANJA - 1) / COLUMNES_PER_FRANJA : 1;
+        int ampladaFranja = (columnes + franges - 1) / franges;
+        long operacionsPerFila = (long) files * ampladaFranja;
+        int filesPerTasca = (int) Math.max(1, Math.min(filesPanell, OPERACIONS_PER_TASCA / Math.max(1, operacionsPerFila)));
+        int grups = (filesPanell + filesPerTasca - 1) / filesPerTasca;
+
+        PlanificadorExecucio.global().perCada(grups * franges, t -> {
+            int filaInici = (t / franges) * filesPerTasca;
+            int filaFi = Math.min(filaInici + filesPerTasca, filesPanell);
+            int colInici = (t % franges) * ampladaFranja;
+            int colFi = Math.min(colInici + ampladaFranja, columnes);
+            if (columnes == 1) {
+                producteVector(a, c, filaInici, filaFi);
+            } else {
+                producteFiles(a, c, filaInici, filaFi, colInici, colFi);
+            }
+        });
+        return new Panell(panell.getFilaInici(), filesPanell, columnes, c);
+    }
+
+    private void producteVector(int[] a, int[] c, int filaInici, int filaFi) {
+        for (int i = filaInici; i < filaFi; i++) {
+            int filaA = i * files;
+            int suma = 0;
+            for (int k = 0; k < files; k++) {
+                suma += a[filaA + k] * b[k];
+            }
+            c[i] = suma;
+        }
+    }
+
+    private void producteFiles(int[] a, int[] c, int filaInici, int filaFi, int colInici, int colFi) {
+        for (int i = filaInici; i < filaFi; i++) {
+            int filaA = i * files;
+            int filaC = i * columnes;
+            for (int k = 0; k < files; k++) {
+                int aik = a[filaA + k];
+                if (aik == 0) continue;
+                int filaB = k * columnes;
+                for (int j = colInici; j < colFi; j++) {
+                    c[filaC + j] += aik * b[filaB + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Multiplica tots els panells de l'entrada i emet cada resultat en l'ordre d'arribada.
+     * El panell següent es llegeix en paral·lel amb el càlcul de l'actual.
+     * @param entrada Panells d'A.
+     * @param sortida Consumidor dels panells de sortida.
+     * @throws InterruptedException Si s'interromp l'espera de l'entrada.
+     */
+    public void processar(Iterator<Panell> entrada, Consumer<Panell> sortida) throws InterruptedException {
+        ExecutorService lector = Executors.newSingleThreadExecutor(r -> {
+            Thread fil = new Thread(r, "Lector-Panells");
+            fil.setDaemon(true);
+            return fil;
+        });
+        try {
+            Future<Panell> seguent = lector.submit(() -> entrada.hasNext() ? entrada.next() : null);
+            while (true) {
+                Panell actual = esperar(seguent);
+                if (actual == null) break;
+                seguent = lector.submit(() -> entrada.hasNext() ? entrada.next() : null);
+                sortida.accept(multiplicar(actual));
+            }
+        } finally {
+            lector.shutdownNow();
+        }
+    }
+
+    /**
+     * Llegeix una matriu A en {@link FormatBinari} d'un canal i n'escriu el producte per B a un altre canal, també
+     * en {@link FormatBinari}, panell a panell.
+     * @param entrada Canal amb la matriu A.
+     * @param sortida Canal on s'escriu A·B.
+     * @param filesPerPanell Files de cada panell.
+     * @throws IOException Si falla la lectura o l'escriptura, o A no té la mida de B.
+     * @throws InterruptedException Si s'interromp el procés.
+     * @throws IllegalArgumentException Si {@code filesPerPanell} no és positiu.
+     */
+    public void processar(ReadableByteChannel entrada, WritableByteChannel sortida, int filesPerPanell)
+            throws IOException, InterruptedException {
+        comprovarFilesPerPanell(filesPerPanell);
+        if (files != columnes) {
+            throw new IllegalStateException("La sortida en format de matriu requereix una B quadrada");
+        }
+        ByteBuffer bufferEntrada = FormatBinari.nouBuffer();
+        ByteBuffer bufferSortida = FormatBinari.nouBuffer();
+        int n = FormatBinari.llegirCapcalera(entrada, bufferEntrada);
+        if (n != files) {
+            throw new IOException("A és de " + n + "x" + n + " i B de " + files + "x" + files);
+        }
+        Iterator<Panell> panells = panells(entrada, bufferEntrada, n, filesPerPanell);
+        FormatBinari.escriureEnters(sortida, bufferSortida, new int[]{FormatBinari.MAGIC, files}, 0, 2);
+        try {
+            processar(panells, panell -> {
+                try {
+                    FormatBinari.escriureEnters(sortida, bufferSortida, panell.getDades(), 0, panell.getDades().length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Divideix una matriu resident en panells. Cada panell és una còpia de les seves files, feta en demanar-lo amb
+     * {@link Iterator#next()}: en total es copien els n² elements, però només hi ha un panell de memòria addicional
+     * viu si qui consumeix l'iterador no els reté.
+     * @param a Matriu d'origen.
+     * @param filesPerPanell Files de cada panell.
+     * @return Iterador de panells.
+     * @throws IllegalArgumentException Si {@code filesPerPanell} no és positiu.
+     */
+    public static Iterator<Panell> panells(Matriu a, int filesPerPanell) {
+        comprovarFilesPerPanell(filesPerPanell);
+        int n = a.getSize();
+        return new Iterator<>() {
+            private int fila = 0;
+
+            @Override
+            public boolean hasNext() {
+                return fila < n;
+            }
+
+            @Override
+            public Panell next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int filesPanell = Math.min(filesPerPanell, n - fila);
+                int[] dades = new int[filesPanell * n];
+                System.arraycopy(a.getData(), fila * n, dades, 0, dades.length);
+                Panell panell = new Panell(fila, filesPanell, n, dades);
+                fila += filesPanell;
+                return panell;
+            }
+        };
+    }
+
+    /**
+     * Llegeix panells d'una matriu en {@link FormatBinari} a mesura que arriben pel canal.
+     * La capçalera es llegeix en crear l'iterador; els errors de lectura posteriors es propaguen com a
+     * {@link UncheckedIOException}.
+     * @param canal Canal d'entrada (fitxer o xarxa).
+     * @param buffer Buffer directe de treball.
+     * @param filesPerPanell Files de cada panell.
+     * @return Iterador de panells.
+     * @throws IOException Si la capçalera no és vàlida.
+     * @throws IllegalArgumentException Si {@code filesPerPanell} no és positiu.
+     */
+    public static Iterator<Panell> panells(ReadableByteChannel canal, ByteBuffer buffer, int filesPerPanell)
+            throws IOException {
+        comprovarFilesPerPanell(filesPerPanell);
+        return panells(canal, buffer, FormatBinari.llegirCapcalera(canal, buffer), filesPerPanell);
+    }
+
+    /**
+     * Llegeix els panells d'una matriu de mida n la capçalera de la qual ja s'ha llegit.
+     */
+    private static Iterator<Panell> panells(ReadableByteChannel canal, ByteBuffer buffer, int n, int filesPerPanell) {
+        return new Iterator<>() {
+            private int fila = 0;
+
+            @Override
+            public boolean hasNext() {
+                return fila < n;
+            }
+
+            @Override
+            public Panell next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int filesPanell = Math.min(filesPerPanell, n - fila);
+                int[] dades = new int[filesPanell * n];
+                try {
+                    FormatBinari.llegirEnters(canal, buffer, dades, 0, dades.length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                Panell panell = new Panell(fila, filesPanell, n, dades);
+                fila += filesPanell;
+                return panell;
+            }
+        };
+    }
+
+    /**
+     * Amb zero files per panell l'iterador no avançaria mai.
+     */
+    private static void comprovarFilesPerPanell(int filesPerPanell) {
+        if (filesPerPanell <= 0) {
+            throw new IllegalArgumentException("Cal almenys una fila per panell: " + filesPerPanell);
+        }
+    }
+
+    private static Panell esperar(Future<Panell> futur) throws InterruptedException {
+        try {
+            return futur.get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException) throw (RuntimeException) causa;
+            if (causa instanceof Error) throw (Error) causa;
+            throw new IllegalStateException(causa);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package Dades;
+
+/**
+ * Bloc de files consecutives d'una matriu, desat per files.
+ */
+public class Panell {
+    private final int filaInici;
+    private final int files;
+    private final int columnes;
+    private final int[] dades;
+
+    /**
+     * Crea un panell amb les dades donades, sense copiar-les.
+     * @param filaInici Índex de la primera fila dins la matriu completa.
+     * @param files Nombre de files del panell.
+     * @param columnes Nombre de columnes.
+     * @param dades Valors per files (com a mínim files·columnes elements).
+     */
+    public Panell(int filaInici, int files, int columnes, int[] dades) {
+        if ((long) files * columnes > dades.length) {
+            throw new IllegalArgumentException("Les dades no tenen " + files + "x" + columnes + " elements");
+        }
+        this.filaInici = filaInici;
+        this.files = files;
+        this.columnes = columnes;
+        this.dades = dades;
+    }
+
+    /**
+     * Panell amb totes les files d'una matriu, compartint-ne les dades.
+     * @param matriu Matriu d'origen.
+     * @return Panell de la matriu sencera.
+     */
+    public static Panell de(Matriu matriu) {
+        return new Panell(0, matriu.getSize(), matriu.getSize(), matriu.getData());
+    }
+
+    public int getFilaInici() {
+        return filaInici;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public int getColumnes() {
+        return columnes;
+    }
+
+    public int[] getDades() {
+        return dades;
+    }
+}
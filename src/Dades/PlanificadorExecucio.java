@@ -0,0 +1,451 @@
+package Dades;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Planificador únic dels fils de càlcul, compartit per {@link Suma}, {@link Multiplicacio} i la resta de motors.
+ * <p>
+ * Tot el treball s'executa en un sol {@link ForkJoinPool}, de manera que diverses operacions concurrents no creen
+ * més fils que nuclis. El pool és en mode LIFO, el que correspon a les tasques fork/join: la recursió de Strassen
+ * i del motor recursiu es desplega en profunditat, amb els temporals que preveu {@link PlanificadorMemoria} i la
+ * localitat de les subtasques recents. Cada operació obre una {@link Feina} amb un límit de paral·lelisme:
+ * les tasques independents ({@link Feina#executar}) passen per una cua pròpia que buiden com a molt tants
+ * drenadors com el límit. L'alternança entre feines no depèn de l'ordre del pool: els drenadors fan cua en una
+ * llista de torns FIFO del planificador, i cada tasca de torn del pool executa una tasca de la feina més antiga
+ * de la llista, que hi torna al final si encara en té. Les tasques fork/join demanen plaça amb {@link Feina#reservar()} abans de
+ * fer fork i, si no n'hi ha, es calculen al mateix fil.
+ * <p>
+ * La mida del pool es pot fixar amb la propietat {@value #PROPIETAT_FILS}: un nombre de fils o {@code fisics}
+ * per fer servir un fil per nucli físic (sense comptar els germans d'hyperthreading).
+ */
+public class PlanificadorExecucio {
+    public static final String PROPIETAT_FILS = "planificador.fils";
+
+    private static final PlanificadorExecucio GLOBAL = new PlanificadorExecucio(filsPerDefecte());
+
+    private final ForkJoinPool pool;
+    private final int parallelisme;
+    private final long inici = System.nanoTime();
+    private final LongAdder tempsOcupat = new LongAdder();
+    private final AtomicInteger feinesActives = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Feina> torns = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Crea un planificador propi (per a proves o serveis aïllats); en general s'ha de fer servir {@link #global()}.
+     * @param fils Nombre de fils de treball.
+     */
+    public PlanificadorExecucio(int fils) {
+        if (fils < 1) {
+            throw new IllegalArgumentException("Cal com a mínim un fil");
+        }
+        this.parallelisme = fils;
+        AtomicInteger comptador = new AtomicInteger();
+        this.pool = new ForkJoinPool(fils, p -> {
+            ForkJoinWorkerThread fil = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            fil.setName("Calcul-" + comptador.getAndIncrement());
+            fil.setDaemon(true);
+            return fil;
+        }, null, false);
+    }
+
+    /**
+     * @return Planificador compartit per tota l'aplicació.
+     */
+    public static PlanificadorExecucio global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Obre una feina amb un límit de paral·lelisme.
+     * @param nom Nom per a les estadístiques.
+     * @param maxParallelisme Tasques de la feina que poden córrer alhora (es limita al paral·lelisme del pool).
+     * @return Feina oberta; s'ha de tancar en acabar.
+     */
+    public Feina obrirFeina(String nom, int maxParallelisme) {
+        return new Feina(nom, Math.max(1, Math.min(maxParallelisme, parallelisme)));
+    }
+
+    /**
+     * Executa una tasca fork/join dins del pool i n'espera el resultat. Si ja s'és en un fil del pool, la tasca
+     * es calcula directament.
+     * @param tasca Tasca a executar.
+     * @param <T> Tipus del resultat.
+     * @return Resultat de la tasca.
+     */
+    public <T> T invocar(ForkJoinTask<T> tasca) {
+        return esFilPropi() ? tasca.invoke() : pool.invoke(tasca);
+    }
+
+    /**
+     * Executa {@code cos} per a cada índex de [0, n) en paral·lel dins del pool, en lloc del pool comú.
+     * @param n Nombre d'índexs.
+     * @param cos Treball de cada índex.
+     */
+    public void perCada(int n, IntConsumer cos) {
+        invocar(ForkJoinTask.adapt(() -> IntStream.range(0, n).parallel().forEach(cos)));
+    }
+
+    /**
+     * @return Cert si el fil actual és un fil de treball d'aquest planificador.
+     */
+    public boolean esFilPropi() {
+        return ForkJoinTask.getPool() == pool;
+    }
+
+    /**
+     * Espera un latch sense bloquejar el pool: si s'espera des d'un fil propi, el pool pot activar-ne un altre
+     * mentrestant.
+     * @param latch Latch a esperar.
+     * @throws InterruptedException Si s'interromp l'espera.
+     */
+    public void esperar(CountDownLatch latch) throws InterruptedException {
+        if (!esFilPropi()) {
+            latch.await();
+            return;
+        }
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                latch.await();
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return latch.getCount() == 0;
+            }
+        });
+    }
+
+    /**
+     * @return Nombre de fils de treball.
+     */
+    public int getParallelisme() {
+        return parallelisme;
+    }
+
+    /**
+     * @return Fracció del temps de tots els fils dedicada a tasques de càlcul des de la creació.
+     */
+    public double getUtilitzacio() {
+        long transcorregut = System.nanoTime() - inici;
+        return transcorregut == 0 ? 0 : Math.min(1.0, tempsOcupat.sum() / ((double) transcorregut * parallelisme));
+    }
+
+    /**
+     * @return Resum del pool i de la utilització acumulada.
+     */
+    public String estadistiques() {
+        return String.format("threads=%d activeJobs=%d utilization=%.1f%% steals=%d queued=%d",
+                parallelisme, feinesActives.get(), getUtilitzacio() * 100, pool.getStealCount(),
+                pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount());
+    }
+
+    /**
+     * Fils per defecte del planificador global segons {@value #PROPIETAT_FILS}.
+     */
+    private static int filsPerDefecte() {
+        String valor = System.getProperty(PROPIETAT_FILS, "").trim();
+        if (valor.equalsIgnoreCase("fisics")) {
+            return nuclisFisics();
+        }
+        if (!valor.isEmpty()) {
+            try {
+                return Math.max(1, Integer.parseInt(valor));
+            } catch (NumberFormatException e) {
+                System.err.println("Valor no vàlid per a " + PROPIETAT_FILS + ": " + valor);
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Compta els nuclis físics a partir de {@code /proc/cpuinfo}. Si no es pot determinar, retorna els
+     * processadors lògics.
+     * @return Nombre de nuclis físics.
+     */
+    public static int nuclisFisics() {
+        int logics = Runtime.getRuntime().availableProcessors();
+        Path cpuinfo = Paths.get("/proc/cpuinfo");
+        if (!Files.isReadable(cpuinfo)) return logics;
+        try {
+            List<String> linies = Files.readAllLines(cpuinfo);
+            Set<String> nuclis = new HashSet<>();
+            String socol = "0";
+            for (String linia : linies) {
+                int dosPunts = linia.indexOf(':');
+                if (dosPunts < 0) continue;
+                String clau = linia.substring(0, dosPunts).trim();
+                String valor = linia.substring(dosPunts + 1).trim();
+                if (clau.equals("physical id")) {
+                    socol = valor;
+                } else if (clau.equals("core id")) {
+                    nuclis.add(socol + ":" + valor);
+                }
+            }
+            return nuclis.isEmpty() ? logics : Math.min(logics, nuclis.size());
+        } catch (IOException e) {
+            return logics;
+        }
+    }
+
+    /**
+     * Dona un torn a la feina que fa més temps que espera. Hi ha tantes tasques de torn al pool com entrades a
+     * {@link #torns}, de manera que totes són intercanviables i l'ordre del pool no altera l'alternança.
+     */
+    private void torn() {
+        Feina feina = torns.poll();
+        if (feina != null) {
+            feina.drenar();
+        }
+    }
+
+    private void demanarTorn(Feina feina) {
+        torns.add(feina);
+        pool.execute(this::torn);
+    }
+
+    /**
+     * Operació amb límit de paral·lelisme i mètriques pròpies d'utilització i d'espera a la cua.
+     */
+    public class Feina implements AutoCloseable {
+        private final String nom;
+        private final int maxParallelisme;
+        private final long obertura = System.nanoTime();
+        private volatile long tancament = 0;
+
+        private final ConcurrentLinkedQueue<Encuada> cua = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger drenadors = new AtomicInteger();
+        private final AtomicInteger places = new AtomicInteger(1);
+
+        private final LongAdder ocupat = new LongAdder();
+        private final LongAdder esperaTotal = new LongAdder();
+        private final AtomicLong esperaMaxima = new AtomicLong();
+        private final LongAdder tasques = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private class Encuada {
+            final Runnable tasca;
+            final long encuada = System.nanoTime();
+
+            Encuada(Runnable tasca) {
+                this.tasca = tasca;
+            }
+        }
+
+        private Feina(String nom, int maxParallelisme) {
+            this.nom = nom;
+            this.maxParallelisme = maxParallelisme;
+            feinesActives.incrementAndGet();
+        }
+
+        /**
+         * Encua una tasca independent. Com a molt {@link #getMaxParallelisme()} tasques de la feina corren alhora.
+         * Si la tasca llança una excepció, es compta a {@link #getErrors()} i la feina continua amb la següent;
+         * qui necessiti l'error l'ha de capturar dins la tasca, com fa {@link #perCada}.
+         * @param tasca Tasca a executar.
+         */
+        public void executar(Runnable tasca) {
+            cua.add(new Encuada(tasca));
+            programar();
+        }
+
+        private void programar() {
+            while (true) {
+                int actius = drenadors.get();
+                if (actius >= maxParallelisme) return;
+                if (drenadors.compareAndSet(actius, actius + 1)) {
+                    demanarTorn(this);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Executa una tasca de la cua i torna al final de la llista de torns si en queden, perquè les altres feines
+         * hi puguin passar al davant.
+         */
+        private void drenar() {
+            Encuada seguent = cua.poll();
+            if (seguent != null) {
+                registrarEspera(System.nanoTime() - seguent.encuada);
+                long inici = System.nanoTime();
+                try {
+                    seguent.tasca.run();
+                } catch (Throwable e) {
+                    // Sense aquesta captura es perdria la plaça del drenador i la resta de la cua no s'executaria
+                    errors.increment();
+                    System.err.println("Tasca de la feina " + nom + " fallida: " + e);
+                } finally {
+                    registrarOcupat(System.nanoTime() - inici);
+                }
+            }
+            if (!cua.isEmpty()) {
+                demanarTorn(this);
+                return;
+            }
+            drenadors.decrementAndGet();
+            if (!cua.isEmpty()) {
+                programar();
+            }
+        }
+
+        /**
+         * Executa {@code cos} per a cada índex de [0, n) com a tasques de la feina i espera que acabin totes.
+         * Si alguna tasca falla, l'error es torna a llançar en aquest fil.
+         * @param n Nombre de tasques.
+         * @param cos Treball de cada índex.
+         * @throws InterruptedException Si s'interromp l'espera.
+         */
+        public void perCada(int n, IntConsumer cos) throws InterruptedException {
+            CountDownLatch latch = new CountDownLatch(n);
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            for (int i = 0; i < n; i++) {
+                int index = i;
+                executar(() -> {
+                    try {
+                        if (error.get() == null) cos.accept(index);
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            esperar(latch);
+
+            Throwable e = error.get();
+            if (e instanceof RuntimeException) throw (RuntimeException) e;
+            if (e instanceof Error) throw (Error) e;
+            if (e != null) throw new IllegalStateException(e);
+        }
+
+        /**
+         * Reserva una plaça per fer fork d'una subtasca. El fil que obre la feina ja en té una.
+         * @return Cert si s'ha reservat; s'ha d'alliberar amb {@link #alliberar()} en acabar la subtasca.
+         */
+        public boolean reservar() {
+            while (true) {
+                int actuals = places.get();
+                if (actuals >= maxParallelisme) return false;
+                if (places.compareAndSet(actuals, actuals + 1)) return true;
+            }
+        }
+
+        /**
+         * Allibera una plaça reservada amb {@link #reservar()}.
+         */
+        public void alliberar() {
+            places.decrementAndGet();
+        }
+
+        /**
+         * Registra el temps que una tasca ha esperat des que es va encuar fins que va començar.
+         * @param nanos Temps d'espera.
+         */
+        public void registrarEspera(long nanos) {
+            esperaTotal.add(nanos);
+            esperaMaxima.accumulateAndGet(nanos, Math::max);
+            tasques.increment();
+        }
+
+        /**
+         * Registra temps de càlcul de la feina.
+         * @param nanos Temps ocupat.
+         */
+        public void registrarOcupat(long nanos) {
+            ocupat.add(nanos);
+            tempsOcupat.add(nanos);
+        }
+
+        /**
+         * @return Planificador de la feina.
+         */
+        public PlanificadorExecucio getPlanificador() {
+            return PlanificadorExecucio.this;
+        }
+
+        public String getNom() {
+            return nom;
+        }
+
+        public int getMaxParallelisme() {
+            return maxParallelisme;
+        }
+
+        /**
+         * @return Fracció de la capacitat de la feina (límit × temps obert) dedicada a càlcul.
+         */
+        public double getUtilitzacio() {
+            long fi = tancament != 0 ? tancament : System.nanoTime();
+            long durada = fi - obertura;
+            return durada == 0 ? 0 : Math.min(1.0, ocupat.sum() / ((double) durada * maxParallelisme));
+        }
+
+        /**
+         * @return Espera mitjana a la cua per tasca, en mil·lisegons.
+         */
+        public double getEsperaMitjanaMs() {
+            long n = tasques.sum();
+            return n == 0 ? 0 : esperaTotal.sum() / (n * 1_000_000.0);
+        }
+
+        /**
+         * @return Espera màxima a la cua, en mil·lisegons.
+         */
+        public double getEsperaMaximaMs() {
+            return esperaMaxima.get() / 1_000_000.0;
+        }
+
+        /**
+         * @return Tasques executades.
+         */
+        public long getTasques() {
+            return tasques.sum();
+        }
+
+        /**
+         * @return Tasques de {@link #executar} que han acabat amb una excepció.
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * @return Resum de la feina.
+         */
+        public String estadistiques() {
+            return String.format("%s: cap=%d tasks=%d failed=%d utilization=%.0f%% queue wait avg=%.3fms max=%.3fms",
+                    nom, maxParallelisme, getTasques(), getErrors(), getUtilitzacio() * 100, getEsperaMitjanaMs(),
+                    getEsperaMaximaMs());
+        }
+
+        /**
+         * Tanca la feina; les mètriques queden fixades a partir d'aquest moment.
+         */
+        @Override
+        public void close() {
+            if (tancament == 0) {
+                tancament = System.nanoTime();
+                feinesActives.decrementAndGet();
+            }
+        }
+    }
+}
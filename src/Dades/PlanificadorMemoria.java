@@ -0,0 +1,185 @@
+package Dades;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Preveu el pic de memòria de {@link Multiplicacio} i tria la profunditat de Strassen més gran que cap dins
+ * el pressupost de heap, o la multiplicació clàssica per blocs si cap nivell de Strassen hi cap.
+ * <p>
+ * El model segueix l'ordre de reserves de cada nivell: còpies amb padding, 8 submatrius i 10 sumes d'entrada
+ * reservades abans de llançar les subtasques; durant la recursió hi ha fins a tres fills vius (dos fork i el que
+ * s'executa en línia) i sis productes ja calculats; després, els 7 productes, les 8 combinacions i la matriu
+ * combinada conviuen amb les entrades del nivell.
+ */
+public class PlanificadorMemoria {
+    private static final double FRACCIO_SEGURA = 0.85;
+    private static final int FILLS_SIMULTANIS = 3;
+
+    /**
+     * Resultat de la planificació d'una multiplicació.
+     */
+    public static class Pla {
+        private final int mida;
+        private final int maxProfunditat;
+        private final long bytesPrevistos;
+        private final long pressupost;
+
+        Pla(int mida, int maxProfunditat, long bytesPrevistos, long pressupost) {
+            this.mida = mida;
+            this.maxProfunditat = maxProfunditat;
+            this.bytesPrevistos = bytesPrevistos;
+            this.pressupost = pressupost;
+        }
+
+        /**
+         * @return Darrer nivell que aplica Strassen (-1 si només es fa la multiplicació clàssica).
+         */
+        public int getMaxProfunditat() {
+            return maxProfunditat;
+        }
+
+        /**
+         * @return Pic previst de memòria en bytes, sense comptar les matrius d'entrada.
+         */
+        public long getBytesPrevistos() {
+            return bytesPrevistos;
+        }
+
+        /**
+         * @return Pressupost de memòria considerat en bytes.
+         */
+        public long getPressupost() {
+            return pressupost;
+        }
+
+        /**
+         * @return Cert si el pic previst cap dins el pressupost.
+         */
+        public boolean isExecutable() {
+            return bytesPrevistos <= pressupost;
+        }
+
+        /**
+         * @return Nom del motor triat.
+         */
+        public String getMotor() {
+            return maxProfunditat < 0 ? "Classic (tiled)" : "Strassen depth " + (maxProfunditat + 1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d: %s, predicted %d MB of %d MB available",
+                    mida, getMotor(), bytesPrevistos >> 20, pressupost >> 20);
+        }
+    }
+
+    /**
+     * Planifica una multiplicació amb el heap disponible ara. La memòria ocupada per escombraries compta com a
+     * usada, per això, si el pla no pot fer servir la profunditat màxima, es demana una recollida i es replanifica.
+     * @param n Mida de les matrius.
+     * @return Pla triat.
+     */
+    public static Pla planificar(int n) {
+        Pla pla = planificar(n, pressupostDisponible());
+        if (pla.getMaxProfunditat() < Multiplicacio.MAX_PROFUNDITAT) {
+            System.gc();
+            pla = planificar(n, pressupostDisponible());
+        }
+        return pla;
+    }
+
+    /**
+     * Planifica una multiplicació de matrius de mida n amb el pressupost indicat.
+     * @param n Mida de les matrius.
+     * @param pressupost Bytes disponibles per a temporals i resultat.
+     * @return Pla amb la profunditat més gran que hi cap, o el pla clàssic (potser no executable).
+     */
+    public static Pla planificar(int n, long pressupost) {
+        for (int maxProfunditat = Multiplicacio.MAX_PROFUNDITAT; maxProfunditat >= 0; maxProfunditat--) {
+            long bytes = bytesPrevistos(n, maxProfunditat);
+            if (bytes <= pressupost) {
+                return new Pla(n, maxProfunditat, bytes, pressupost);
+            }
+        }
+        return new Pla(n, -1, bytesPrevistos(n, -1), pressupost);
+    }
+
+    /**
+     * Preveu el pic de memòria d'una multiplicació sense comptar les matrius d'entrada.
+     * @param n Mida de les matrius.
+     * @param maxProfunditat Darrer nivell que aplica Strassen.
+     * @return Bytes previstos.
+     */
+    public static long bytesPrevistos(int n, int maxProfunditat) {
+        return picEnters(n, 0, maxProfunditat) * Integer.BYTES;
+    }
+
+    private static long picEnters(int mida, int profunditat, int maxProfunditat) {
+        long m = mida;
+        if (mida <= Multiplicacio.UMBRAL_STRASSEN || profunditat > maxProfunditat) {
+            return m * m;
+        }
+
+        long novaMida = m + m % 2;
+        long h = novaMida / 2;
+        long padding = novaMida != m ? 2 * novaMida * novaMida : 0;
+        long retall = novaMida != m ? m * m : 0;
+
+        long recursio = padding + 24 * h * h
+                + FILLS_SIMULTANIS * picEnters((int) h, profunditat + 1, maxProfunditat);
+        long combinacio = padding + 33 * h * h + novaMida * novaMida + retall;
+        return Math.max(recursio, combinacio);
+    }
+
+    /**
+     * Calcula la memòria de heap que es pot fer servir ara, amb un marge de seguretat.
+     * @return Bytes disponibles.
+     */
+    public static long pressupostDisponible() {
+        Runtime runtime = Runtime.getRuntime();
+        long usat = runtime.totalMemory() - runtime.freeMemory();
+        return (long) ((runtime.maxMemory() - usat) * FRACCIO_SEGURA);
+    }
+
+    /**
+     * Reinicia el pic de totes les zones de heap per poder mesurar el pic real d'una operació.
+     */
+    public static void reiniciarPic() {
+        for (MemoryPoolMXBean zona : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (zona.getType() == MemoryType.HEAP) {
+                zona.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Retorna la memòria de heap ocupada ara.
+     * @return Bytes ocupats.
+     */
+    public static long heapUsat() {
+        long total = 0;
+        for (MemoryPoolMXBean zona : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (zona.getType() == MemoryType.HEAP) {
+                total += zona.getUsage().getUsed();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Retorna la suma dels pics de les zones de heap des del darrer {@link #reiniciarPic()}.
+     * És una fita superior, perquè cada zona pot arribar al pic en un moment diferent.
+     * @return Bytes del pic mesurat.
+     */
+    public static long picHeap() {
+        long total = 0;
+        for (MemoryPoolMXBean zona : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (zona.getType() == MemoryType.HEAP) {
+                total += zona.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,297 @@
+package Dades;
+
+/**
+ * Manté el producte C = A·B al dia davant de canvis dispersos a A o a B.
+ * <p>
+ * Cada actualització corregeix C només amb la part afectada: una fila d'A o una columna de B es recalculen
+ * (O(n²)), una columna d'A o una fila de B s'apliquen com a correcció de rang 1 (O(n²)) i una cel·la com a
+ * correcció d'una fila o columna de C (O(n)). Com que l'aritmètica entera és modular, el resultat és idèntic
+ * bit a bit al de recalcular el producte sencer.
+ * <p>
+ * Quan la fracció de files i columnes canviades des de l'últim producte complet supera el llindar, les
+ * correccions deixen de compensar: es deixen d'aplicar i el producte es recalcula sencer a la següent consulta.
+ * Les matrius rebudes es copien; la instància no és segura entre fils.
+ */
+public class ProducteIncremental {
+    /** Fracció de files o columnes canviades a partir de la qual es recalcula el producte sencer. */
+    public static final double LLINDAR_PER_DEFECTE = 0.125;
+
+    private final int n;
+    private final Matriu a;
+    private final Matriu b;
+    private final double llindar;
+    private Matriu c;
+
+    private double canvis = 0;
+    private boolean obsolet = false;
+    private long recalculsComplets = 0;
+    private long correccions = 0;
+
+    /**
+     * Calcula el producte inicial amb el llindar per defecte.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     */
+    public ProducteIncremental(Matriu a, Matriu b) {
+        this(a, b, LLINDAR_PER_DEFECTE);
+    }
+
+    /**
+     * Calcula el producte inicial.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param llindar Fracció (entre 0 i 1) de files o columnes canviades que provoca un recàlcul complet.
+     */
+    public ProducteIncremental(Matriu a, Matriu b, double llindar) {
+        if (a.getSize() != b.getSize()) {
+            throw new IllegalArgumentException("Les matrius han de tenir la mateixa mida");
+        }
+        if (llindar < 0 || llindar > 1) {
+            throw new IllegalArgumentException("El llindar ha d'estar entre 0 i 1");
+        }
+        this.n = a.getSize();
+        this.a = copiar(a);
+        this.b = copiar(b);
+        this.llindar = llindar;
+        recalcular();
+    }
+
+    /**
+     * Substitueix la fila i d'A i recalcula la fila i de C.
+     * @param i Índex de la fila.
+     * @param fila Nous valors (n elements).
+     * @throws IndexOutOfBoundsException Si l'índex no és a [0, n).
+     * @throws IllegalArgumentException Si el vector no té n elements.
+     */
+    public void actualitzarFilaA(int i, int[] fila) {
+        comprovarIndex(i);
+        comprovarVector(fila);
+        System.arraycopy(fila, 0, a.getData(), i * n, n);
+        if (registrarCanvi(1)) return;
+
+        int[] dadesB = b.getData();
+        int[] dadesC = c.getData();
+        int[] nova = new int[n];
+        for (int k = 0; k < n; k++) {
+            int aik = fila[k];
+            if (aik == 0) continue;
+            int filaB = k * n;
+            for (int j = 0; j < n; j++) {
+                nova[j] += aik * dadesB[filaB + j];
+            }
+        }
+        System.arraycopy(nova, 0, dadesC, i * n, n);
+    }
+
+    /**
+     * Substitueix la columna j de B i recalcula la columna j de C.
+     * @param j Índex de la columna.
+     * @param columna Nous valors (n elements).
+     * @throws IndexOutOfBoundsException Si l'índex no és a [0, n).
+     * @throws IllegalArgumentException Si el vector no té n elements.
+     */
+    public void actualitzarColumnaB(int j, int[] columna) {
+        comprovarIndex(j);
+        comprovarVector(columna);
+        int[] dadesB = b.getData();
+        for (int k = 0; k < n; k++) {
+            dadesB[k * n + j] = columna[k];
+        }
+        if (registrarCanvi(1)) return;
+
+        int[] dadesA = a.getData();
+        int[] dadesC = c.getData();
+        PlanificadorExecucio.global().perCada(n, i -> {
+            int filaA = i * n;
+            int suma = 0;
+            for (int k = 0; k < n; k++) {
+                suma += dadesA[filaA + k] * columna[k];
+            }
+            dadesC[filaA + j] = suma;
+        });
+    }
+
+    /**
+     * Substitueix la columna k d'A i aplica la correcció de rang 1 ΔA[:,k] · B[k,:].
+     * @param k Índex de la columna.
+     * @param columna Nous valors (n elements).
+     * @throws IndexOutOfBoundsException Si l'índex no és a [0, n).
+     * @throws IllegalArgumentException Si el vector no té n elements.
+     */
+    public void actualitzarColumnaA(int k, int[] columna) {
+        comprovarIndex(k);
+        comprovarVector(columna);
+        int[] dadesA = a.getData();
+        int[] delta = new int[n];
+        for (int i = 0; i < n; i++) {
+            delta[i] = columna[i] - dadesA[i * n + k];
+            dadesA[i * n + k] = columna[i];
+        }
+        if (registrarCanvi(1)) return;
+
+        int[] filaB = new int[n];
+        System.arraycopy(b.getData(), k * n, filaB, 0, n);
+        rang1(delta, filaB);
+    }
+
+    /**
+     * Substitueix la fila k de B i aplica la correcció de rang 1 A[:,k] · ΔB[k,:].
+     * @param k Índex de la fila.
+     * @param fila Nous valors (n elements).
+     * @throws IndexOutOfBoundsException Si l'índex no és a [0, n).
+     * @throws IllegalArgumentException Si el vector no té n elements.
+     */
+    public void actualitzarFilaB(int k, int[] fila) {
+        comprovarIndex(k);
+        comprovarVector(fila);
+        int[] dadesB = b.getData();
+        int[] delta = new int[n];
+        for (int j = 0; j < n; j++) {
+            delta[j] = fila[j] - dadesB[k * n + j];
+        }
+        System.arraycopy(fila, 0, dadesB, k * n, n);
+        if (registrarCanvi(1)) return;
+
+        int[] dadesA = a.getData();
+        int[] columnaA = new int[n];
+        for (int i = 0; i < n; i++) {
+            columnaA[i] = dadesA[i * n + k];
+        }
+        rang1(columnaA, delta);
+    }
+
+    /**
+     * Canvia l'element (i, k) d'A i corregeix la fila i de C amb Δ · B[k,:].
+     * @param i Fila.
+     * @param k Columna.
+     * @param valor Nou valor.
+     * @throws IndexOutOfBoundsException Si algun índex no és a [0, n).
+     */
+    public void actualitzarCellaA(int i, int k, int valor) {
+        comprovarIndex(i);
+        comprovarIndex(k);
+        int delta = valor - a.get(i, k);
+        a.set(i, k, valor);
+        if (delta == 0 || registrarCanvi(1.0 / n)) return;
+
+        int[] dadesB = b.getData();
+        int[] dadesC = c.getData();
+        int filaB = k * n;
+        int filaC = i * n;
+        for (int j = 0; j < n; j++) {
+            dadesC[filaC + j] += delta * dadesB[filaB + j];
+        }
+    }
+
+    /**
+     * Canvia l'element (k, j) de B i corregeix la columna j de C amb A[:,k] · Δ.
+     * @param k Fila.
+     * @param j Columna.
+     * @param valor Nou valor.
+     * @throws IndexOutOfBoundsException Si algun índex no és a [0, n).
+     */
+    public void actualitzarCellaB(int k, int j, int valor) {
+        comprovarIndex(k);
+        comprovarIndex(j);
+        int delta = valor - b.get(k, j);
+        b.set(k, j, valor);
+        if (delta == 0 || registrarCanvi(1.0 / n)) return;
+
+        int[] dadesA = a.getData();
+        int[] dadesC = c.getData();
+        for (int i = 0; i < n; i++) {
+            dadesC[i * n + j] += dadesA[i * n + k] * delta;
+        }
+    }
+
+    /**
+     * Retorna el producte actual, recalculant-lo sencer si s'ha superat el llindar de canvis.
+     * @return Producte A·B (compartit, no s'ha de modificar).
+     */
+    public Matriu getResultat() {
+        if (obsolet) {
+            recalcular();
+        }
+        return c;
+    }
+
+    /**
+     * @return Fracció de files o columnes canviades des de l'últim producte complet.
+     */
+    public double getFraccioCanviada() {
+        return canvis / n;
+    }
+
+    /**
+     * @return Productes complets calculats, inclòs l'inicial.
+     */
+    public long getRecalculsComplets() {
+        return recalculsComplets;
+    }
+
+    /**
+     * @return Correccions incrementals aplicades.
+     */
+    public long getCorreccions() {
+        return correccions;
+    }
+
+    /**
+     * Comptabilitza un canvi i indica si la correcció s'ha d'ometre perquè el producte ja és obsolet.
+     * @param files Files o columnes equivalents afectades.
+     * @return Cert si el producte es recalcularà sencer.
+     */
+    private boolean registrarCanvi(double files) {
+        if (obsolet) return true;
+        canvis += files;
+        if (canvis > llindar * n) {
+            obsolet = true;
+            return true;
+        }
+        correccions++;
+        return false;
+    }
+
+    /**
+     * C += u · vᵀ, repartit per files.
+     */
+    private void rang1(int[] u, int[] v) {
+        int[] dadesC = c.getData();
+        PlanificadorExecucio.global().perCada(n, i -> {
+            int ui = u[i];
+            if (ui == 0) return;
+            int filaC = i * n;
+            for (int j = 0; j < n; j++) {
+                dadesC[filaC + j] += ui * v[j];
+            }
+        });
+    }
+
+    private void recalcular() {
+        c = new Multiplicacio(a, b).compute();
+        canvis = 0;
+        obsolet = false;
+        recalculsComplets++;
+    }
+
+    /**
+     * Es comprova abans de tocar res, perquè un índex fora de rang no escrigui a la fila o columna veïna.
+     */
+    private void comprovarIndex(int index) {
+        if (index < 0 || index >= n) {
+            throw new IndexOutOfBoundsException("Índex " + index + " fora de [0, " + n + ")");
+        }
+    }
+
+    private void comprovarVector(int[] valors) {
+        if (valors.length != n) {
+            throw new IllegalArgumentException("S'esperaven " + n + " elements");
+        }
+    }
+
+    private static Matriu copiar(Matriu original) {
+        Matriu copia = new Matriu(original.getSize());
+        System.arraycopy(original.getData(), 0, copia.getData(), 0, original.getData().length);
+        return copia;
+    }
+}
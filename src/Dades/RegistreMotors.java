@@ -0,0 +1,52 @@
+package Dades;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registre dels motors de multiplicació disponibles, en ordre de registre. Els motors propis es poden afegir en
+ * temps d'execució amb {@link #registrar(EstrategiaMultiplicacio)}.
+ */
+public class RegistreMotors {
+    /** Motor que es fa servir mentre el model de cost no té dades. */
+    public static final String PER_DEFECTE = "Strassen";
+
+    private static final Map<String, EstrategiaMultiplicacio> motors = new LinkedHashMap<>();
+
+    static {
+        registrar(new MotorIngenu());
+        registrar(new MotorBlocs());
+        registrar(new MotorRecursiu());
+        registrar(new MotorStrassen());
+    }
+
+    /**
+     * Registra un motor; si ja n'hi havia un amb el mateix nom, el substitueix.
+     * @param motor Motor a registrar.
+     */
+    public static synchronized void registrar(EstrategiaMultiplicacio motor) {
+        motors.put(motor.getNom(), motor);
+    }
+
+    /**
+     * @param nom Nom del motor.
+     * @return Motor registrat amb aquest nom.
+     * @throws IllegalArgumentException Si no n'hi ha cap.
+     */
+    public static synchronized EstrategiaMultiplicacio obtenir(String nom) {
+        EstrategiaMultiplicacio motor = motors.get(nom);
+        if (motor == null) {
+            throw new IllegalArgumentException("Motor desconegut: " + nom);
+        }
+        return motor;
+    }
+
+    /**
+     * @return Còpia de la llista de motors registrats.
+     */
+    public static synchronized List<EstrategiaMultiplicacio> tots() {
+        return new ArrayList<>(motors.values());
+    }
+}
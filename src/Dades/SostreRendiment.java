@@ -0,0 +1,273 @@
+package Dades;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Model roofline de la màquina: amplada de banda de memòria mesurada amb una sonda tipus STREAM i pic de càlcul
+ * mesurat amb el mateix nucli c[j] += v·b[j] dels motors, sobre dades que caben a la cache L1. El rendiment
+ * assolible amb una intensitat aritmètica I (operacions per byte) és min(pic, I · amplada de banda).
+ * <p>
+ * Les operacions són enteres i es compten com a la literatura: 2n³ per multiplicació (multiplicació i suma per
+ * producte escalar, també per a Strassen, que en fa menys i per tant pot superar el 100%) i n² per suma. El
+ * trànsit mínim és llegir A i B i escriure C una vegada: 3n² enters.
+ * <p>
+ * Com demana STREAM, cada vector de la sonda d'amplada de banda ocupa com a mínim 4 vegades la darrera cache
+ * (LLC), presa de la propietat {@value #PROPIETAT_LLC} (KB), de {@code /sys/devices/system/cpu} o, si no es pot
+ * saber, de {@value #LLC_PER_DEFECTE_MB} MB; els tres vectors es limiten a la meitat del heap. Si el límit els deixa
+ * per sota de 4 vegades la LLC, {@link #descriure()} ho indica, perquè la mesura pot incloure la cache.
+ */
+public class SostreRendiment {
+    public static final String PROPIETAT_LLC = "roofline.llcKB";
+    private static final long LLC_PER_DEFECTE_MB = 64;
+    private static final int ELEMENTS_STREAM_MINIMS = 1 << 22;
+    private static final int ELEMENTS_COMPUT = 1024;
+    private static final int REPETICIONS_COMPUT = 1 << 17;
+    private static final int MESURES = 5;
+
+    private static SostreRendiment host;
+    private static volatile long sumidor;
+
+    private final double ampladaBandaGBs;
+    private final double picGops;
+    private final long bytesLLC;
+    private final long bytesVector;
+
+    SostreRendiment(double ampladaBandaGBs, double picGops, long bytesLLC, long bytesVector) {
+        this.ampladaBandaGBs = ampladaBandaGBs;
+        this.picGops = picGops;
+        this.bytesLLC = bytesLLC;
+        this.bytesVector = bytesVector;
+    }
+
+    /**
+     * Sostre d'aquesta màquina, mesurat la primera vegada que es demana amb el
+     * {@link PlanificadorExecucio#global() planificador global}.
+     * @return Sostre de la màquina.
+     * @throws InterruptedException Si s'interromp la mesura.
+     */
+    public static synchronized SostreRendiment host() throws InterruptedException {
+        if (host == null) {
+            host = mesurar(PlanificadorExecucio.global());
+        }
+        return host;
+    }
+
+    /**
+     * Executa les dues sondes amb tots els fils del planificador i es queda amb la millor de {@value #MESURES}
+     * mesures de cadascuna, com STREAM.
+     * @param planificador Planificador on s'executen les sondes.
+     * @return Sostre mesurat.
+     * @throws InterruptedException Si s'interromp la mesura.
+     */
+    public static SostreRendiment mesurar(PlanificadorExecucio planificador) throws InterruptedException {
+        int fils = planificador.getParallelisme();
+        long llc = midaLLC();
+        int elements = elementsStream(llc);
+        try (PlanificadorExecucio.Feina feina = planificador.obrirFeina("Roofline", fils)) {
+            return new SostreRendiment(sondaAmpladaBanda(feina, elements), sondaComput(feina), llc,
+                    (long) elements * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Mida de la darrera cache: la de la propietat {@value #PROPIETAT_LLC}, la del nivell més alt de
+     * {@code /sys/devices/system/cpu/cpu0/cache} o {@value #LLC_PER_DEFECTE_MB} MB.
+     * @return Bytes de la LLC.
+     */
+    static long midaLLC() {
+        String valor = System.getProperty(PROPIETAT_LLC, "").trim();
+        if (!valor.isEmpty()) {
+            try {
+                return Long.parseLong(valor) << 10;
+            } catch (NumberFormatException e) {
+                System.err.println("Valor no vàlid per a " + PROPIETAT_LLC + ": " + valor);
+            }
+        }
+
+        int nivellMaxim = 0;
+        long mida = LLC_PER_DEFECTE_MB << 20;
+        try (DirectoryStream<Path> caches = Files.newDirectoryStream(
+                Paths.get("/sys/devices/system/cpu/cpu0/cache"), "index*")) {
+            for (Path cache : caches) {
+                int nivell = Integer.parseInt(Files.readString(cache.resolve("level")).trim());
+                String text = Files.readString(cache.resolve("size")).trim();
+                if (nivell <= nivellMaxim || !text.endsWith("K")) continue;
+                nivellMaxim = nivell;
+                mida = Long.parseLong(text.substring(0, text.length() - 1)) << 10;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Sense informació del sistema: es queda la mida per defecte
+        }
+        return mida;
+    }
+
+    /**
+     * @param bytesLLC Bytes de la darrera cache.
+     * @return Enters de cada vector de la sonda: 4 vegades la LLC, entre {@value #ELEMENTS_STREAM_MINIMS} i la
+     *         sisena part del heap.
+     */
+    static int elementsStream(long bytesLLC) {
+        long desitjats = Math.max(ELEMENTS_STREAM_MINIMS, 4 * bytesLLC / Integer.BYTES);
+        long maxim = Runtime.getRuntime().maxMemory() / (6L * Integer.BYTES);
+        return (int) Math.min(Integer.MAX_VALUE - 8, Math.min(desitjats, maxim));
+    }
+
+    /**
+     * Sonda tipus STREAM "Add" (c[i] = a[i] + b[i]) sobre vectors molt més grans que la cache, repartits en
+     * tants blocs com fils. Es compten 12 bytes per element, sense el write-allocate, com STREAM.
+     * @param feina Feina on s'executa la sonda.
+     * @param elements Enters de cada vector.
+     * @return Amplada de banda en GB/s.
+     * @throws InterruptedException Si s'interromp la mesura.
+     */
+    static double sondaAmpladaBanda(PlanificadorExecucio.Feina feina, int elements) throws InterruptedException {
+        int[] a = new int[elements];
+        int[] b = new int[elements];
+        int[] c = new int[elements];
+        for (int i = 0; i < elements; i++) {
+            a[i] = i;
+            b[i] = elements - i;
+        }
+        int blocs = feina.getMaxParallelisme();
+        int mida = (elements + blocs - 1) / blocs;
+
+        long millor = Long.MAX_VALUE;
+        for (int m = 0; m < MESURES; m++) {
+            long inici = System.nanoTime();
+            feina.perCada(blocs, bloc -> {
+                int fi = Math.min(elements, (bloc + 1) * mida);
+                for (int i = bloc * mida; i < fi; i++) {
+                    c[i] = a[i] + b[i];
+                }
+            });
+            millor = Math.min(millor, System.nanoTime() - inici);
+        }
+        sumidor = c[elements / 2];
+        return 3.0 * Integer.BYTES * elements / millor;
+    }
+
+    /**
+     * Sonda de pic de càlcul: cada fil repeteix c[j] += v·b[j] sobre {@value #ELEMENTS_COMPUT} enters propis,
+     * que es queden a L1, de manera que el temps depèn només de les unitats aritmètiques i la vectorització.
+     * @param feina Feina on s'executa la sonda.
+     * @return Pic en GOPS (2 operacions per element i repetició).
+     * @throws InterruptedException Si s'interromp la mesura.
+     */
+    static double sondaComput(PlanificadorExecucio.Feina feina) throws InterruptedException {
+        int fils = feina.getMaxParallelisme();
+        long[] sumes = new long[fils];
+
+        long millor = Long.MAX_VALUE;
+        for (int m = 0; m < MESURES; m++) {
+            long inici = System.nanoTime();
+            feina.perCada(fils, fil -> {
+                int[] b = new int[ELEMENTS_COMPUT];
+                int[] c = new int[ELEMENTS_COMPUT];
+                for (int j = 0; j < ELEMENTS_COMPUT; j++) {
+                    b[j] = j + fil;
+                }
+                for (int r = 0; r < REPETICIONS_COMPUT; r++) {
+                    int v = r | 1;
+                    for (int j = 0; j < ELEMENTS_COMPUT; j++) {
+                        c[j] += v * b[j];
+                    }
+                }
+                sumes[fil] = c[fil % ELEMENTS_COMPUT];
+            });
+            millor = Math.min(millor, System.nanoTime() - inici);
+        }
+        long suma = 0;
+        for (long s : sumes) suma += s;
+        sumidor = suma;
+        return 2.0 * ELEMENTS_COMPUT * REPETICIONS_COMPUT * fils / millor;
+    }
+
+    /**
+     * @return Amplada de banda de memòria en GB/s.
+     */
+    public double getAmpladaBandaGBs() {
+        return ampladaBandaGBs;
+    }
+
+    /**
+     * @return Pic de càlcul en GOPS.
+     */
+    public double getPicGops() {
+        return picGops;
+    }
+
+    /**
+     * @param intensitat Intensitat aritmètica en operacions per byte.
+     * @return Rendiment assolible en GOPS.
+     */
+    public double limitGops(double intensitat) {
+        return Math.min(picGops, intensitat * ampladaBandaGBs);
+    }
+
+    /**
+     * @param n Mida de les matrius.
+     * @return Intensitat aritmètica mínima de la multiplicació: 2n³ operacions per 12n² bytes.
+     */
+    public static double intensitatMultiplicacio(int n) {
+        return n / 6.0;
+    }
+
+    /**
+     * @param n Mida de les matrius.
+     * @param ms Temps en mil·lisegons.
+     * @return GOPS efectius d'una multiplicació (2n³ operacions).
+     */
+    public static double gopsMultiplicacio(int n, double ms) {
+        return 2.0 * n * n * n / (ms * 1e6);
+    }
+
+    /**
+     * @param n Mida de les matrius.
+     * @param ms Temps en mil·lisegons.
+     * @return GB/s d'una suma (12n² bytes llegits i escrits).
+     */
+    public static double gbsSuma(int n, double ms) {
+        return 3.0 * Integer.BYTES * n * n / (ms * 1e6);
+    }
+
+    /**
+     * @param n Mida de les matrius.
+     * @param ms Temps en mil·lisegons.
+     * @return Percentatge del rendiment assolible per a una multiplicació de mida n.
+     */
+    public double percentatgeMultiplicacio(int n, double ms) {
+        return 100 * gopsMultiplicacio(n, ms) / limitGops(intensitatMultiplicacio(n));
+    }
+
+    /**
+     * La suma té intensitat 1/12 operacions per byte i sempre queda limitada per la memòria, per això es compara
+     * directament amb l'amplada de banda.
+     * @param n Mida de les matrius.
+     * @param ms Temps en mil·lisegons.
+     * @return Percentatge de l'amplada de banda mesurada.
+     */
+    public double percentatgeSuma(int n, double ms) {
+        return 100 * gbsSuma(n, ms) / ampladaBandaGBs;
+    }
+
+    /**
+     * @return Cert si els vectors de la sonda ocupen com a mínim 4 vegades la LLC.
+     */
+    public boolean isSondaFiable() {
+        return bytesVector >= 4 * bytesLLC;
+    }
+
+    /**
+     * @return Resum de les dues sondes, de la mida dels vectors i del punt on el model passa de limitat per
+     *         memòria a limitat per càlcul.
+     */
+    public String descriure() {
+        return String.format("roofline: STREAM add %.1f GB/s (3 x %d MB arrays, LLC %d MB%s), peak %.1f GOPS, "
+                        + "ridge %.2f ops/byte", ampladaBandaGBs, bytesVector >> 20, bytesLLC >> 20,
+                isSondaFiable() ? "" : ", below 4x LLC: raise -Xmx", picGops, picGops / ampladaBandaGBs);
+    }
+}
@@ -1,7 +1,5 @@
 package Dades;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.CountDownLatch;
 
 /**
@@ -20,7 +18,19 @@ public class Suma {
      * @throws InterruptedException Si es interromp l'espera.
      */
     public static Matriu add(Matriu a, Matriu b) throws InterruptedException {
-        return add(a, b, Runtime.getRuntime().availableProcessors());
+        return add(a, b, PlanificadorExecucio.global().getParallelisme());
+    }
+
+    /**
+     * Suma dues matrius utilitzant tots els nuclis disponibles i es pot aturar amb un token.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param token Token de cancel·lació consultat abans de cada bloc.
+     * @return Matriu resultat.
+     * @throws InterruptedException Si es interromp l'espera.
+     */
+    public static Matriu add(Matriu a, Matriu b, TokenCancellacio token) throws InterruptedException {
+        return add(a, b, PlanificadorExecucio.global().getParallelisme(), token);
     }
 
     /**
@@ -32,17 +42,53 @@ public class Suma {
      * @throws InterruptedException Si es interromp l'espera.
      */
     public static Matriu add(Matriu a, Matriu b, int threads) throws InterruptedException {
+        return add(a, b, threads, new TokenCancellacio());
+    }
+
+    /**
+     * Suma dues matrius amb un nombre específic de fils del {@link PlanificadorExecucio#global() planificador global}.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param threads Nombre màxim de fils.
+     * @param token Token de cancel·lació consultat abans de cada bloc.
+     * @return Matriu resultat.
+     * @throws InterruptedException Si es interromp l'espera.
+     * @throws java.util.concurrent.CancellationException Si s'ha cancel·lat el token.
+     */
+    public static Matriu add(Matriu a, Matriu b, int threads, TokenCancellacio token) throws InterruptedException {
+        try (PlanificadorExecucio.Feina feina = PlanificadorExecucio.global().obrirFeina("Suma", threads)) {
+            return add(a, b, feina, token);
+        }
+    }
+
+    /**
+     * Suma dues matrius dins d'una feina del planificador, amb tants blocs com el seu límit de paral·lelisme.
+     * Els blocs que encara no han començat quan es cancel·la el token es descarten i el progrés queda registrat
+     * al token.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param feina Feina que executa els blocs.
+     * @param token Token de cancel·lació consultat abans de cada bloc.
+     * @return Matriu resultat.
+     * @throws InterruptedException Si es interromp l'espera.
+     * @throws java.util.concurrent.CancellationException Si s'ha cancel·lat el token.
+     */
+    public static Matriu add(Matriu a, Matriu b, PlanificadorExecucio.Feina feina, TokenCancellacio token)
+            throws InterruptedException {
         if (a.getSize() != b.getSize()) {
             throw new IllegalArgumentException("Dimensions no coincideixen");
         }
 
+        EsdevenimentSuma esdeveniment = new EsdevenimentSuma();
+        esdeveniment.begin();
+
         Matriu c = new Matriu(a.getSize());
         int[] aData = a.getData();
         int[] bData = b.getData();
         int[] cData = c.getData();
         int totalElements = aData.length;
-
-        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        token.preveure(totalElements);
+        int threads = feina.getMaxParallelisme();
 
         // Calcula la mida òptima dels blocs segons la cache
         int blocSize = Math.max(totalElements / threads, INTS_PER_CACHE_LINE);
@@ -56,33 +102,53 @@ public class Suma {
             final int start = t * blocSize;
             final int end = Math.min(start + blocSize, totalElements);
 
-            executor.execute(() -> {
-                int i = start;
-                int limit = end - 7;
-
-                // Bloc principal amb unrolling 8x
-                for (; i < limit; i += 8) {
-                    cData[i]   = aData[i]   + bData[i];
-                    cData[i+1] = aData[i+1] + bData[i+1];
-                    cData[i+2] = aData[i+2] + bData[i+2];
-                    cData[i+3] = aData[i+3] + bData[i+3];
-                    cData[i+4] = aData[i+4] + bData[i+4];
-                    cData[i+5] = aData[i+5] + bData[i+5];
-                    cData[i+6] = aData[i+6] + bData[i+6];
-                    cData[i+7] = aData[i+7] + bData[i+7];
-                }
-
-                // Elements residuals
-                for (; i < end; i++) {
-                    cData[i] = aData[i] + bData[i];
+            feina.executar(() -> {
+                // El countDown va al finally perquè una tasca fallida no deixi esperar(latch) bloquejat
+                try {
+                    if (token.isCancellat()) return;
+
+                    int i = start;
+                    int limit = end - 7;
+
+                    // Bloc principal amb unrolling 8x
+                    for (; i < limit; i += 8) {
+                        cData[i]   = aData[i]   + bData[i];
+                        cData[i+1] = aData[i+1] + bData[i+1];
+                        cData[i+2] = aData[i+2] + bData[i+2];
+                        cData[i+3] = aData[i+3] + bData[i+3];
+                        cData[i+4] = aData[i+4] + bData[i+4];
+                        cData[i+5] = aData[i+5] + bData[i+5];
+                        cData[i+6] = aData[i+6] + bData[i+6];
+                        cData[i+7] = aData[i+7] + bData[i+7];
+                    }
+
+                    // Elements residuals
+                    for (; i < end; i++) {
+                        cData[i] = aData[i] + bData[i];
+                    }
+
+                    token.completar(end - start);
+                } finally {
+                    latch.countDown();
                 }
-
-                latch.countDown();
             });
         }
 
-        latch.await();
-        executor.shutdown();
+        try {
+            feina.getPlanificador().esperar(latch);
+        } catch (InterruptedException e) {
+            token.cancellar();
+            throw e;
+        }
+        token.comprovar();
+
+        esdeveniment.end();
+        if (esdeveniment.shouldCommit()) {
+            esdeveniment.mida = a.getSize();
+            esdeveniment.fils = threads;
+            esdeveniment.bytesReservats = (long) totalElements * Integer.BYTES;
+            esdeveniment.commit();
+        }
         return c;
     }
 
@@ -0,0 +1,97 @@
+package Dades;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Senyal de cancel·lació cooperativa compartit entre el controlador i les tasques de {@link Suma} i
+ * {@link Multiplicacio}. Les tasques consulten el token entre blocs de treball i, si s'ha cancel·lat o s'ha
+ * exhaurit el termini, llancen {@link CancellationException} perquè els temporals quedin lliures.
+ * També acumula el treball fet per poder informar del progrés parcial.
+ */
+public class TokenCancellacio {
+    private volatile boolean cancellat = false;
+    private final long termini;
+    private final boolean ambTermini;
+    private final AtomicLong treballTotal = new AtomicLong();
+    private final AtomicLong treballFet = new AtomicLong();
+
+    /**
+     * Crea un token sense termini.
+     */
+    public TokenCancellacio() {
+        this.ambTermini = false;
+        this.termini = 0;
+    }
+
+    /**
+     * Crea un token que es considera cancel·lat un cop passat el temps indicat.
+     * @param tempsMaxim Temps màxim a partir d'ara.
+     */
+    public TokenCancellacio(Duration tempsMaxim) {
+        this.ambTermini = true;
+        this.termini = System.nanoTime() + tempsMaxim.toNanos();
+    }
+
+    /**
+     * Demana l'aturada de totes les tasques que comparteixen el token.
+     */
+    public void cancellar() {
+        cancellat = true;
+    }
+
+    /**
+     * Indica si s'ha exhaurit el termini del token.
+     * @return Cert si el token té termini i ja ha passat.
+     */
+    public boolean terminiExhaurit() {
+        return ambTermini && System.nanoTime() - termini > 0;
+    }
+
+    /**
+     * Indica si les tasques s'han d'aturar.
+     * @return Cert si s'ha cancel·lat o s'ha exhaurit el termini.
+     */
+    public boolean isCancellat() {
+        return cancellat || terminiExhaurit();
+    }
+
+    /**
+     * Punt de comprovació per a les tasques.
+     * @throws CancellationException Si s'ha cancel·lat o s'ha exhaurit el termini.
+     */
+    public void comprovar() {
+        if (cancellat) {
+            throw new CancellationException("Càlcul aturat");
+        }
+        if (terminiExhaurit()) {
+            throw new CancellationException("Termini exhaurit");
+        }
+    }
+
+    /**
+     * Afegeix treball previst al total.
+     * @param unitats Unitats de treball.
+     */
+    public void preveure(long unitats) {
+        treballTotal.addAndGet(unitats);
+    }
+
+    /**
+     * Registra treball completat.
+     * @param unitats Unitats de treball.
+     */
+    public void completar(long unitats) {
+        treballFet.addAndGet(unitats);
+    }
+
+    /**
+     * Retorna la fracció de treball completat.
+     * @return Valor entre 0 i 1, o 0 si no s'ha previst cap treball.
+     */
+    public double progres() {
+        long total = treballTotal.get();
+        return total == 0 ? 0 : Math.min(1.0, (double) treballFet.get() / total);
+    }
+}
@@ -0,0 +1,58 @@
+package Dades;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Verificació probabilística de productes amb l'algorisme de Freivalds en O(k·n²).
+ * <p>
+ * Per a k vectors aleatoris r de zeros i uns es comprova que A·(B·r) = C·r. Si C ≠ A·B, cada ronda detecta
+ * l'error amb probabilitat almenys 1/2, també amb l'aritmètica modular dels {@code int}, de manera que la
+ * probabilitat d'acceptar un resultat incorrecte és com a molt 2^-k. Les k rondes es fan alhora perquè cada
+ * fila de A, B i C es llegeixi un sol cop, i les files es reparteixen entre tots els nuclis.
+ */
+public class VerificacioFreivalds {
+    public static final int RONDES_PER_DEFECTE = 8;
+
+    /**
+     * Comprova que C = A·B amb {@value #RONDES_PER_DEFECTE} rondes i una llavor nova.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param c Resultat a verificar.
+     * @return Cert si totes les rondes coincideixen.
+     */
+    public static boolean verificar(Matriu a, Matriu b, Matriu c) {
+        return verificar(a, b, c, RONDES_PER_DEFECTE, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Comprova que C = A·B.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param c Resultat a verificar.
+     * @param rondes Nombre de vectors aleatoris (error com a molt 2^-rondes).
+     * @param llavor Llavor dels vectors aleatoris.
+     * @return Cert si totes les rondes coincideixen.
+     */
+    public static boolean verificar(Matriu a, Matriu b, Matriu c, int rondes, long llavor) {
+        int n = a.getSize();
+        if (b.getSize() != n || c.getSize() != n) {
+            throw new IllegalArgumentException("Dimensions no coincideixen");
+        }
+        if (rondes <= 0) {
+            throw new IllegalArgumentException("Cal almenys una ronda");
+        }
+
+        // R és n×k en ordre per files: R[j*k + t] és l'element j del vector de la ronda t
+        int[] r = new int[n * rondes];
+        SplittableRandom random = new SplittableRandom(llavor);
+        for (int i = 0; i < r.length; i++) {
+            r[i] = random.nextInt(2);
+        }
+
+        int[] br = MultiplicacioStreaming.gemm(b, r, rondes);
+        int[] abr = MultiplicacioStreaming.gemm(a, br, rondes);
+        int[] cr = MultiplicacioStreaming.gemm(c, r, rondes);
+        return Arrays.equals(abr, cr);
+    }
+}
@@ -0,0 +1,231 @@
+package Distribuit;
+
+import Dades.FormatBinari;
+import Dades.Matriu;
+import Dades.Multiplicacio;
+import Dades.PlanificadorExecucio;
+import Dades.SostreRendiment;
+import Dades.VerificacioFreivalds;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Coordina una multiplicació per blocs 2D entre diversos processos {@link Treballador} amb l'esquema SUMMA.
+ * <p>
+ * A, B i C es divideixen en una graella q×q de blocs bs×bs, amb q = ⌈√p⌉ per a p treballadors. Cada bloc
+ * C(i,j) s'assigna a un treballador; per a cada pas k el coordinador li difon el panell A(i,k) i el panell
+ * B(k,j), i el treballador acumula el producte amb el seu motor local. Hi ha un fil per treballador, de manera
+ * que les transferències d'un treballador se solapen amb el càlcul dels altres.
+ */
+public class Coordinador implements Closeable {
+    private final List<SocketChannel> canals = new ArrayList<>();
+
+    /**
+     * Obre una connexió amb cada treballador.
+     * @param treballadors Adreces dels treballadors.
+     * @throws IOException Si no es pot connectar amb algun treballador.
+     */
+    public Coordinador(List<InetSocketAddress> treballadors) throws IOException {
+        try {
+            for (InetSocketAddress adreca : treballadors) {
+                SocketChannel canal = SocketChannel.open(adreca);
+                canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                canals.add(canal);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Multiplica dues matrius repartint els blocs de C entre els treballadors.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @return Matriu resultat.
+     * @throws IOException Si falla la comunicació amb algun treballador.
+     * @throws InterruptedException Si s'interromp l'espera.
+     */
+    public Matriu multiplicar(Matriu a, Matriu b) throws IOException, InterruptedException {
+        if (a.getSize() != b.getSize()) {
+            throw new IllegalArgumentException("Dimensions no coincideixen");
+        }
+
+        int n = a.getSize();
+        int p = canals.size();
+        int q = (int) Math.ceil(Math.sqrt(p));
+        int bs = (n + q - 1) / q;
+        Matriu c = new Matriu(n);
+
+        // Repartiment cíclic dels blocs de C entre els treballadors
+        List<List<int[]>> assignacions = new ArrayList<>();
+        for (int w = 0; w < p; w++) {
+            assignacions.add(new ArrayList<>());
+        }
+        for (int bloc = 0; bloc < q * q; bloc++) {
+            assignacions.get(bloc % p).add(new int[]{bloc / q, bloc % q});
+        }
+
+        ExecutorService fils = Executors.newFixedThreadPool(p);
+        try {
+            List<Future<Void>> resultats = new ArrayList<>();
+            for (int w = 0; w < p; w++) {
+                SocketChannel canal = canals.get(w);
+                List<int[]> blocs = assignacions.get(w);
+                resultats.add(fils.submit(() -> {
+                    calcularBlocs(canal, blocs, a, b, c, q, bs);
+                    return null;
+                }));
+            }
+            for (Future<Void> resultat : resultats) {
+                resultat.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException("Error en un treballador", e.getCause());
+        } finally {
+            fils.shutdownNow();
+        }
+        return c;
+    }
+
+    /**
+     * Envia els panells dels blocs assignats a un treballador i copia els blocs de C que retorna.
+     */
+    private static void calcularBlocs(SocketChannel canal, List<int[]> blocs, Matriu a, Matriu b, Matriu c,
+                                      int q, int bs) throws IOException {
+        int n = c.getSize();
+        ByteBuffer buffer = FormatBinari.nouBuffer();
+        int[] blocC = new int[bs * bs];
+
+        for (int[] bloc : blocs) {
+            int fila0 = bloc[0] * bs;
+            int col0 = bloc[1] * bs;
+            if (fila0 >= n || col0 >= n) continue;
+
+            FormatBinari.escriureEnters(canal, buffer, new int[]{ProtocolBlocs.OP_MULTIPLICAR, bs, q}, 0, 3);
+            for (int k = 0; k < q; k++) {
+                ProtocolBlocs.enviarBloc(canal, buffer, a.getData(), n, fila0, k * bs, bs);
+                ProtocolBlocs.enviarBloc(canal, buffer, b.getData(), n, k * bs, col0, bs);
+            }
+            FormatBinari.llegirEnters(canal, buffer, blocC, 0, blocC.length);
+
+            // Cada fil escriu només les seves regions de C
+            int files = Math.min(bs, n - fila0);
+            int columnes = Math.min(bs, n - col0);
+            for (int r = 0; r < files; r++) {
+                System.arraycopy(blocC, r * bs, c.getData(), (fila0 + r) * n + col0, columnes);
+            }
+        }
+    }
+
+    /**
+     * Tanca les connexions avisant els treballadors.
+     */
+    @Override
+    public void close() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Integer.BYTES).order(FormatBinari.ORDRE);
+        for (SocketChannel canal : canals) {
+            try (canal) {
+                buffer.clear();
+                buffer.putInt(ProtocolBlocs.OP_TANCAR).flip();
+                FormatBinari.buidar(canal, buffer);
+            } catch (IOException e) {
+                // La connexió ja estava tancada
+            }
+        }
+        canals.clear();
+    }
+
+    /**
+     * Mesura l'escalabilitat amb 1..p treballadors llançats com a processos locals i n'informa per consola.
+     * Cada treballador rep una part proporcional dels nuclis perquè la màquina no quedi sobresubscrita. Els GOPS
+     * es comparen amb el {@link SostreRendiment roofline} d'aquesta màquina, mesurat abans de començar.
+     * <p>
+     * Ús: {@code java Distribuit.Coordinador <n> <maxTreballadors>}.
+     */
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int maxTreballadors = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int nuclis = Runtime.getRuntime().availableProcessors();
+        SostreRendiment sostre = SostreRendiment.host();
+        double limit = sostre.limitGops(SostreRendiment.intensitatMultiplicacio(n));
+        System.out.println(sostre.descriure());
+
+        Matriu a = new Matriu(n);
+        Matriu b = new Matriu(n);
+        a.initRandom(1);
+        b.initRandom(2);
+
+        long inici = System.nanoTime();
+        new Multiplicacio(a, b).compute();
+        double tempsLocal = (System.nanoTime() - inici) / 1_000_000.0;
+        System.out.printf("n=%d, local (1 JVM, %d cores): %.1f ms, %.2f GOPS (%.0f%% of %.1f GOPS roofline)%n",
+                n, nuclis, tempsLocal, SostreRendiment.gopsMultiplicacio(n, tempsLocal),
+                sostre.percentatgeMultiplicacio(n, tempsLocal), limit);
+        System.out.println("workers  time(ms)  speedup  efficiency     GOPS  roofline  verified");
+
+        double temps1 = 0;
+        for (int p = 1; p <= maxTreballadors; p++) {
+            List<Process> processos = new ArrayList<>();
+            List<InetSocketAddress> adreces = new ArrayList<>();
+            try {
+                for (int w = 0; w < p; w++) {
+                    Process proces = llancarTreballador(Math.max(1, nuclis / p));
+                    processos.add(proces);
+                    adreces.add(new InetSocketAddress("localhost", llegirPort(proces)));
+                }
+
+                try (Coordinador coordinador = new Coordinador(adreces)) {
+                    inici = System.nanoTime();
+                    Matriu c = coordinador.multiplicar(a, b);
+                    double temps = (System.nanoTime() - inici) / 1_000_000.0;
+                    if (p == 1) temps1 = temps;
+
+                    double acceleracio = temps1 / temps;
+                    System.out.printf("%7d  %8.1f  %7.2f  %9.0f%%  %7.2f  %7.0f%%  %s%n", p, temps, acceleracio,
+                            100 * acceleracio / p, SostreRendiment.gopsMultiplicacio(n, temps),
+                            sostre.percentatgeMultiplicacio(n, temps), VerificacioFreivalds.verificar(a, b, c));
+                }
+            } finally {
+                for (Process proces : processos) {
+                    proces.destroy();
+                }
+            }
+        }
+    }
+
+    private static Process llancarTreballador(int paralelisme) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder constructor = new ProcessBuilder(java,
+                "-D" + PlanificadorExecucio.PROPIETAT_FILS + "=" + paralelisme,
+                "-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + paralelisme,
+                "-cp", System.getProperty("java.class.path"),
+                Treballador.class.getName(), "0");
+        constructor.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return constructor.start();
+    }
+
+    private static int llegirPort(Process proces) throws IOException {
+        BufferedReader sortida = new BufferedReader(new InputStreamReader(proces.getInputStream()));
+        String linia = sortida.readLine();
+        if (linia == null || !linia.startsWith("READY ")) {
+            throw new IOException("El treballador no s'ha iniciat");
+        }
+        return Integer.parseInt(linia.substring("READY ".length()).trim());
+    }
+}
@@ -0,0 +1,63 @@
+package Distribuit;
+
+import Dades.FormatBinari;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Protocol entre el {@link Coordinador} i els {@link Treballador}s.
+ * <p>
+ * Cada petició comença amb un codi d'operació. {@link #OP_MULTIPLICAR} va seguit de la mida de bloc bs i del
+ * nombre de passos q, i després de q parells de blocs (A(i,k), B(k,j)) de bs×bs enters; el treballador respon
+ * amb el bloc C(i,j) acumulat. {@link #OP_TANCAR} acaba la connexió. Tots els enters segueixen
+ * l'ordre de {@link FormatBinari}.
+ */
+class ProtocolBlocs {
+    static final int OP_MULTIPLICAR = 1;
+    static final int OP_TANCAR = 2;
+
+    /**
+     * Envia un bloc bs×bs d'una matriu n×n. Les files i columnes fora de la matriu s'envien com a zeros,
+     * així els blocs de la vora no necessiten cap còpia amb padding.
+     * @param canal Canal de sortida.
+     * @param buffer Buffer directe de treball.
+     * @param dades Dades de la matriu per files.
+     * @param n Mida de la matriu.
+     * @param fila0 Primera fila del bloc.
+     * @param col0 Primera columna del bloc.
+     * @param bs Mida del bloc.
+     * @throws IOException Si falla l'escriptura.
+     */
+    static void enviarBloc(WritableByteChannel canal, ByteBuffer buffer, int[] dades, int n,
+                           int fila0, int col0, int bs) throws IOException {
+        buffer.clear();
+        for (int r = 0; r < bs; r++) {
+            int fila = fila0 + r;
+            int valides = fila < n ? Math.max(0, Math.min(bs, n - col0)) : 0;
+
+            for (int escrits = 0; escrits < bs; ) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    buffer.flip();
+                    FormatBinari.buidar(canal, buffer);
+                    buffer.clear();
+                }
+                IntBuffer vista = buffer.asIntBuffer();
+                int tros = Math.min(vista.remaining(), bs - escrits);
+                int copiats = Math.max(0, Math.min(tros, valides - escrits));
+                if (copiats > 0) {
+                    vista.put(dades, fila * n + col0 + escrits, copiats);
+                }
+                for (int z = copiats; z < tros; z++) {
+                    vista.put(0);
+                }
+                buffer.position(buffer.position() + tros * Integer.BYTES);
+                escrits += tros;
+            }
+        }
+        buffer.flip();
+        FormatBinari.buidar(canal, buffer);
+    }
+}
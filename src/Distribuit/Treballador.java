@@ -0,0 +1,80 @@
+package Distribuit;
+
+import Dades.FormatBinari;
+import Dades.Matriu;
+import Dades.Multiplicacio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Procés treballador de la multiplicació distribuïda. Accepta connexions d'un {@link Coordinador} i, per a cada
+ * bloc de C assignat, acumula els productes A(i,k)·B(k,j) amb el motor local {@link Multiplicacio}.
+ * <p>
+ * Ús: {@code java Distribuit.Treballador [port]}. Amb port 0 es tria un port lliure; quan està a punt escriu
+ * {@code READY <port>} per la sortida estàndard.
+ */
+public class Treballador {
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+
+        try (ServerSocketChannel servidor = ServerSocketChannel.open()) {
+            servidor.bind(new InetSocketAddress(port));
+            System.out.println("READY " + ((InetSocketAddress) servidor.getLocalAddress()).getPort());
+            System.out.flush();
+
+            while (true) {
+                SocketChannel canal = servidor.accept();
+                canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                new Thread(() -> atendre(canal), "treballador-" + canal.socket().getPort()).start();
+            }
+        }
+    }
+
+    /**
+     * Atén les peticions d'una connexió fins que el coordinador la tanca.
+     * @param canal Connexió amb el coordinador.
+     */
+    private static void atendre(SocketChannel canal) {
+        ByteBuffer buffer = FormatBinari.nouBuffer();
+        int[] capcalera = new int[2];
+        int[] operacio = new int[1];
+
+        try (canal) {
+            while (true) {
+                FormatBinari.llegirEnters(canal, buffer, operacio, 0, 1);
+                if (operacio[0] == ProtocolBlocs.OP_TANCAR) return;
+                if (operacio[0] != ProtocolBlocs.OP_MULTIPLICAR) {
+                    throw new IOException("Operació desconeguda: " + operacio[0]);
+                }
+
+                FormatBinari.llegirEnters(canal, buffer, capcalera, 0, 2);
+                int bs = capcalera[0];
+                int passos = capcalera[1];
+
+                Matriu a = new Matriu(bs);
+                Matriu b = new Matriu(bs);
+                int[] acumulat = new int[bs * bs];
+                for (int k = 0; k < passos; k++) {
+                    FormatBinari.llegirEnters(canal, buffer, a.getData(), 0, bs * bs);
+                    FormatBinari.llegirEnters(canal, buffer, b.getData(), 0, bs * bs);
+                    int[] producte = new Multiplicacio(a, b).compute().getData();
+                    for (int i = 0; i < acumulat.length; i++) {
+                        acumulat[i] += producte[i];
+                    }
+                }
+                FormatBinari.escriureEnters(canal, buffer, acumulat, 0, acumulat.length);
+            }
+        } catch (EOFException e) {
+            // El coordinador ha tancat la connexió
+        } catch (IOException e) {
+            System.err.println("Error a la connexió: " + e.getMessage());
+        }
+    }
+}
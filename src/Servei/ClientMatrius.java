@@ -0,0 +1,91 @@
+package Servei;
+
+import Dades.FormatBinari;
+import Dades.Matriu;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Client del {@link ServidorMatrius}. Cada instància manté una connexió i fa les peticions d'una en una.
+ */
+public class ClientMatrius implements Closeable {
+    private final SocketChannel canal;
+    private final ByteBuffer buffer = FormatBinari.nouBuffer();
+
+    /**
+     * Connecta amb un servei de la mateixa màquina.
+     * @param port Port del servei.
+     * @throws IOException Si no es pot connectar.
+     */
+    public ClientMatrius(int port) throws IOException {
+        canal = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /**
+     * Multiplica dues matrius al servei.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param prioritat Prioritat de la feina (més alta, abans).
+     * @return Producte.
+     * @throws ServidorOcupatException Si la cua del servei és plena.
+     * @throws IOException Si falla la comunicació o l'operació.
+     */
+    public Matriu multiplicar(Matriu a, Matriu b, int prioritat) throws IOException {
+        return demanar(ProtocolServei.OP_MULTIPLICAR, prioritat, a, b);
+    }
+
+    /**
+     * Suma dues matrius al servei.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @param prioritat Prioritat de la feina (més alta, abans).
+     * @return Suma.
+     * @throws ServidorOcupatException Si la cua del servei és plena.
+     * @throws IOException Si falla la comunicació o l'operació.
+     */
+    public Matriu sumar(Matriu a, Matriu b, int prioritat) throws IOException {
+        return demanar(ProtocolServei.OP_SUMAR, prioritat, a, b);
+    }
+
+    /**
+     * Demana el resum de latències i rendiment del servei.
+     * @return Text amb les estadístiques.
+     * @throws IOException Si falla la comunicació.
+     */
+    public String estadistiques() throws IOException {
+        FormatBinari.escriureEnters(canal, buffer, new int[]{ProtocolServei.OP_ESTADISTIQUES, 0}, 0, 2);
+        llegirEstat();
+        return ProtocolServei.llegirText(canal, buffer);
+    }
+
+    private Matriu demanar(int operacio, int prioritat, Matriu a, Matriu b) throws IOException {
+        FormatBinari.escriureEnters(canal, buffer, new int[]{operacio, prioritat}, 0, 2);
+        FormatBinari.escriure(a, canal, buffer);
+        FormatBinari.escriure(b, canal, buffer);
+        llegirEstat();
+        return FormatBinari.llegir(canal, buffer);
+    }
+
+    private void llegirEstat() throws IOException {
+        int[] estat = new int[1];
+        FormatBinari.llegirEnters(canal, buffer, estat, 0, 1);
+        if (estat[0] == ProtocolServei.ESTAT_OCUPAT) {
+            throw new ServidorOcupatException(ProtocolServei.llegirText(canal, buffer));
+        }
+        if (estat[0] != ProtocolServei.ESTAT_OK) {
+            throw new IOException(ProtocolServei.llegirText(canal, buffer));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
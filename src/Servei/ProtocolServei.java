@@ -0,0 +1,44 @@
+package Servei;
+
+import Dades.FormatBinari;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protocol entre {@link ClientMatrius} i {@link ServidorMatrius}.
+ * <p>
+ * Petició: codi d'operació i prioritat, seguits de dues matrius en {@link FormatBinari} per a
+ * {@link #OP_MULTIPLICAR} i {@link #OP_SUMAR}, o res per a {@link #OP_ESTADISTIQUES}.
+ * Resposta: un estat; amb {@link #ESTAT_OK} segueix la matriu resultat (o un text per a les estadístiques),
+ * amb {@link #ESTAT_OCUPAT} o {@link #ESTAT_ERROR} segueix un text amb el motiu.
+ */
+class ProtocolServei {
+    static final int OP_MULTIPLICAR = 1;
+    static final int OP_SUMAR = 2;
+    static final int OP_ESTADISTIQUES = 3;
+
+    static final int ESTAT_OK = 0;
+    static final int ESTAT_OCUPAT = 1;
+    static final int ESTAT_ERROR = 2;
+
+    static void escriureText(WritableByteChannel canal, ByteBuffer buffer, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        FormatBinari.escriureEnters(canal, buffer, new int[]{bytes.length}, 0, 1);
+        FormatBinari.buidar(canal, ByteBuffer.wrap(bytes));
+    }
+
+    static String llegirText(ReadableByteChannel canal, ByteBuffer buffer) throws IOException {
+        int[] longitud = new int[1];
+        FormatBinari.llegirEnters(canal, buffer, longitud, 0, 1);
+        if (longitud[0] < 0) {
+            throw new IOException("Longitud de text no vàlida");
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(longitud[0]);
+        FormatBinari.omplir(canal, bytes);
+        return new String(bytes.array(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,444 @@
+package Servei;
+
+import Controladora.MetriquesOperacions;
+import Dades.CacheResultats;
+import Dades.DespatxadorMultiplicacio;
+import Dades.EstrategiaMultiplicacio;
+import Dades.FormatBinari;
+import Dades.Matriu;
+import Dades.ModelCost;
+import Dades.Multiplicacio;
+import Dades.PlanificadorExecucio;
+import Dades.Suma;
+import Dades.TokenCancellacio;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servei local de càlcul que permet a altres processos de la màquina fer servir els motors de {@link Dades}.
+ * <p>
+ * Les peticions arriben pel {@link ProtocolServei} i s'admeten com a molt {@code capacitat} alhora; la resta es
+ * rebutgen amb {@link ProtocolServei#ESTAT_OCUPAT} perquè el client apliqui backpressure. La plaça es pren en
+ * llegir la capçalera del primer operand, abans de reservar-ne les dades, de manera que la capacitat també limita
+ * la memòria; les peticions rebutjades, o amb mida més gran que {@code midaMaxima}, es llegeixen sense desar-les
+ * i es responen amb un error. Les feines petites
+ * (n &le; {@value #MIDA_PETITA}) s'agrupen en lots de fins a {@value #MAX_LOT} durant una finestra curta i cada lot
+ * s'executa com una sola tasca del {@link PlanificadorExecucio} global, amb cada feina seqüencial. Les feines grans
+ * es despatxen d'una en una per ordre de prioritat i cadascuna aprofita tot el pool compartit.
+ * <p>
+ * Les latències (incloent-hi l'espera a la cua) i el rendiment es publiquen a l'MBean {@value #NOM_OBJECTE} i
+ * amb l'operació {@link ProtocolServei#OP_ESTADISTIQUES}.
+ */
+public class ServidorMatrius implements Closeable {
+    public static final String NOM_OBJECTE = "OperacionsMatrius:type=MetriquesServei";
+    public static final int CAPACITAT_PER_DEFECTE = 64;
+    public static final String PROPIETAT_MIDA_MAXIMA = "servei.midaMaxima";
+    public static final int MIDA_MAXIMA_PER_DEFECTE = 8192;
+
+    private static final int MIDA_PETITA = 128;
+    private static final int MAX_LOT = 64;
+    private static final long FINESTRA_LOT_NS = 2_000_000L;
+    /** Tots els motors donen el mateix producte (mòdul 2³²), per això la memòria cau no els distingeix. */
+    private static final String CLAU_PRODUCTE = "Product";
+
+    private final ServerSocketChannel servidor;
+    private final Semaphore capacitat;
+    private final int capacitatMaxima;
+    private final int midaMaxima;
+    private final BlockingQueue<Feina> petites = new LinkedBlockingQueue<>();
+    private final PriorityBlockingQueue<Feina> grans = new PriorityBlockingQueue<>();
+    private final PlanificadorExecucio planificador = PlanificadorExecucio.global();
+    private final PlanificadorExecucio.Feina feinaLots = planificador.obrirFeina("Batches", planificador.getParallelisme());
+    private final MetriquesOperacions metriques = new MetriquesOperacions();
+    private final CacheResultats cache;
+    private final DespatxadorMultiplicacio despatxador = new DespatxadorMultiplicacio(new ModelCost());
+    private final AtomicLong rebutjades = new AtomicLong();
+    private final AtomicLong lots = new AtomicLong();
+    private final List<Thread> fils = new ArrayList<>();
+    private volatile boolean actiu = true;
+
+    /**
+     * Petició admesa pendent d'executar.
+     */
+    private static class Feina implements Comparable<Feina> {
+        private static final AtomicLong seguent = new AtomicLong();
+
+        final int operacio;
+        final int prioritat;
+        final Matriu a;
+        final Matriu b;
+        final long arribada = System.nanoTime();
+        final long ordre = seguent.getAndIncrement();
+        final CompletableFuture<Matriu> resultat = new CompletableFuture<>();
+
+        Feina(int operacio, int prioritat, Matriu a, Matriu b) {
+            this.operacio = operacio;
+            this.prioritat = prioritat;
+            this.a = a;
+            this.b = b;
+        }
+
+        /**
+         * Primer la prioritat més alta; a igual prioritat, per ordre d'arribada.
+         */
+        @Override
+        public int compareTo(Feina altra) {
+            if (prioritat != altra.prioritat) return Integer.compare(altra.prioritat, prioritat);
+            return Long.compare(ordre, altra.ordre);
+        }
+    }
+
+    /**
+     * Obre el servei a l'adreça local i engega els fils d'acceptació i de despatx.
+     * @param port Port d'escolta (0 per triar-ne un de lliure).
+     * @param capacitat Nombre màxim de peticions admeses alhora.
+     * @throws IOException Si no es pot obrir el port.
+     */
+    public ServidorMatrius(int port, int capacitat) throws IOException {
+        this(port, capacitat, new CacheResultats(Runtime.getRuntime().maxMemory() / 4));
+    }
+
+    /**
+     * Obre el servei amb una memòria cau de productes pròpia i la mida màxima de la propietat
+     * {@value #PROPIETAT_MIDA_MAXIMA} (per defecte {@value #MIDA_MAXIMA_PER_DEFECTE}).
+     * @param port Port d'escolta (0 per triar-ne un de lliure).
+     * @param capacitat Nombre màxim de peticions admeses alhora.
+     * @param cache Memòria cau dels productes.
+     * @throws IOException Si no es pot obrir el port.
+     */
+    public ServidorMatrius(int port, int capacitat, CacheResultats cache) throws IOException {
+        this(port, capacitat, cache, Integer.getInteger(PROPIETAT_MIDA_MAXIMA, MIDA_MAXIMA_PER_DEFECTE));
+    }
+
+    /**
+     * Obre el servei amb una memòria cau de productes pròpia.
+     * @param port Port d'escolta (0 per triar-ne un de lliure).
+     * @param capacitat Nombre màxim de peticions admeses alhora.
+     * @param cache Memòria cau dels productes.
+     * @param midaMaxima Mida més gran de les matrius que s'accepten.
+     * @throws IOException Si no es pot obrir el port.
+     */
+    public ServidorMatrius(int port, int capacitat, CacheResultats cache, int midaMaxima) throws IOException {
+        this.cache = cache;
+        this.capacitat = new Semaphore(capacitat);
+        this.capacitatMaxima = capacitat;
+        this.midaMaxima = Math.min(midaMaxima, FormatBinari.MIDA_MAXIMA);
+        this.servidor = ServerSocketChannel.open();
+        servidor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        metriques.registrarMBean(NOM_OBJECTE);
+
+        iniciarFil(this::acceptar, "servei-acceptacio");
+        iniciarFil(this::executarLots, "servei-lots");
+        iniciarFil(this::executarGrans, "servei-grans");
+    }
+
+    /**
+     * @return Port on escolta el servei.
+     * @throws IOException Si el canal ja s'ha tancat.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) servidor.getLocalAddress()).getPort();
+    }
+
+    private void iniciarFil(Runnable tasca, String nom) {
+        Thread fil = new Thread(tasca, nom);
+        fil.setDaemon(true);
+        fils.add(fil);
+        fil.start();
+    }
+
+    private void acceptar() {
+        while (actiu) {
+            try {
+                SocketChannel canal = servidor.accept();
+                Thread fil = new Thread(() -> atendre(canal), "servei-client");
+                fil.setDaemon(true);
+                fil.start();
+            } catch (IOException e) {
+                if (actiu) System.err.println("Error acceptant connexions: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Atén les peticions d'un client una rere l'altra fins que tanca la connexió.
+     * @param canal Connexió amb el client.
+     */
+    private void atendre(SocketChannel canal) {
+        ByteBuffer buffer = FormatBinari.nouBuffer();
+        int[] capcalera = new int[2];
+
+        try (canal) {
+            while (actiu) {
+                FormatBinari.llegirEnters(canal, buffer, capcalera, 0, 2);
+                int operacio = capcalera[0];
+
+                if (operacio == ProtocolServei.OP_ESTADISTIQUES) {
+                    FormatBinari.escriureEnters(canal, buffer, new int[]{ProtocolServei.ESTAT_OK}, 0, 1);
+                    ProtocolServei.escriureText(canal, buffer, estadistiques());
+                    continue;
+                }
+
+                if (operacio != ProtocolServei.OP_MULTIPLICAR && operacio != ProtocolServei.OP_SUMAR) {
+                    // Sense operació coneguda no se sap quant ocupa la petició: es tanca la connexió
+                    respondreError(canal, buffer, ProtocolServei.ESTAT_ERROR, "Operació desconeguda: " + operacio);
+                    return;
+                }
+                int mida = llegirMida(canal, buffer);
+                if (mida < 0) return;
+                if (mida > midaMaxima) {
+                    if (!descartarOperands(canal, buffer, mida)) return;
+                    respondreError(canal, buffer, ProtocolServei.ESTAT_ERROR,
+                            "Mida " + mida + " més gran que el màxim del servei (" + midaMaxima + ")");
+                    continue;
+                }
+                if (!capacitat.tryAcquire()) {
+                    rebutjades.incrementAndGet();
+                    if (!descartarOperands(canal, buffer, mida)) return;
+                    respondreError(canal, buffer, ProtocolServei.ESTAT_OCUPAT,
+                            "Cua plena (" + capacitatMaxima + " peticions)");
+                    continue;
+                }
+
+                Feina feina;
+                boolean admesa = false;
+                try {
+                    Matriu a = new Matriu(mida);
+                    FormatBinari.llegirEnters(canal, buffer, a.getData(), 0, a.getData().length);
+                    int midaB = llegirMida(canal, buffer);
+                    if (midaB < 0) return;
+                    if (midaB != mida) {
+                        FormatBinari.descartarEnters(canal, buffer, (long) midaB * midaB);
+                        respondreError(canal, buffer, ProtocolServei.ESTAT_ERROR, "Dimensions no coincideixen");
+                        continue;
+                    }
+                    Matriu b = new Matriu(mida);
+                    FormatBinari.llegirEnters(canal, buffer, b.getData(), 0, b.getData().length);
+
+                    feina = new Feina(operacio, capcalera[1], a, b);
+                    (mida <= MIDA_PETITA ? petites : grans).add(feina);
+                    admesa = true;
+                } catch (OutOfMemoryError e) {
+                    // La petició s'ha llegit a mitges: es respon i es tanca la connexió
+                    respondreError(canal, buffer, ProtocolServei.ESTAT_ERROR, "Memòria insuficient per a n=" + mida);
+                    return;
+                } finally {
+                    if (!admesa) capacitat.release();
+                }
+
+                try {
+                    Matriu resultat = feina.resultat.get();
+                    FormatBinari.escriureEnters(canal, buffer, new int[]{ProtocolServei.ESTAT_OK}, 0, 1);
+                    FormatBinari.escriure(resultat, canal, buffer);
+                } catch (ExecutionException e) {
+                    respondreError(canal, buffer, ProtocolServei.ESTAT_ERROR, String.valueOf(e.getCause().getMessage()));
+                }
+            }
+        } catch (EOFException e) {
+            // El client ha tancat la connexió
+        } catch (IOException e) {
+            if (actiu) System.err.println("Error amb un client: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Llegeix la capçalera d'un operand; si no és vàlida, respon amb un error.
+     * @return Mida de l'operand, o -1 si la capçalera no és vàlida i s'ha de tancar la connexió.
+     */
+    private static int llegirMida(SocketChannel canal, ByteBuffer buffer) throws IOException {
+        try {
+            return FormatBinari.llegirCapcalera(canal, buffer);
+        } catch (EOFException e) {
+            throw e;
+        } catch (IOException e) {
+            respondreError(canal, buffer, ProtocolServei.ESTAT_ERROR, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Llegeix sense desar-les les dades de la primera matriu, de la qual ja s'ha llegit la capçalera, i la segona
+     * matriu sencera.
+     * @return Fals si la capçalera de la segona matriu no és vàlida i s'ha de tancar la connexió.
+     */
+    private static boolean descartarOperands(SocketChannel canal, ByteBuffer buffer, int mida) throws IOException {
+        FormatBinari.descartarEnters(canal, buffer, (long) mida * mida);
+        int midaB = llegirMida(canal, buffer);
+        if (midaB < 0) return false;
+        FormatBinari.descartarEnters(canal, buffer, (long) midaB * midaB);
+        return true;
+    }
+
+    private static void respondreError(SocketChannel canal, ByteBuffer buffer, int estat, String motiu) throws IOException {
+        FormatBinari.escriureEnters(canal, buffer, new int[]{estat}, 0, 1);
+        ProtocolServei.escriureText(canal, buffer, motiu);
+    }
+
+    /**
+     * Agrupa les feines petites que arriben dins la finestra i n'executa cada lot com una sola tasca del pool.
+     */
+    private void executarLots() {
+        try {
+            while (actiu) {
+                List<Feina> lot = new ArrayList<>();
+                lot.add(petites.take());
+
+                long limit = System.nanoTime() + FINESTRA_LOT_NS;
+                while (lot.size() < MAX_LOT) {
+                    Feina feina = petites.poll(limit - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (feina == null) break;
+                    lot.add(feina);
+                }
+
+                lots.incrementAndGet();
+                // Un lot és una sola tasca de la feina: les feines s'executen en seqüència dins seu, i el paral·lelisme
+                // ve dels lots que corren alhora, fins al límit de la feina
+                feinaLots.executar(() -> lot.forEach(this::executar));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executa les feines grans d'una en una per ordre de prioritat; cadascuna reparteix el treball per tot el pool.
+     */
+    private void executarGrans() {
+        try {
+            while (actiu) {
+                Feina feina = grans.take();
+                planificador.invocar(ForkJoinTask.adapt(() -> executar(feina)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executa una feina i allibera la seva plaça de la cua. Les feines petites es calculen de manera seqüencial,
+     * ja que el paral·lelisme ve del lot.
+     * @param feina Feina a executar.
+     */
+    private void executar(Feina feina) {
+        try {
+            boolean petita = feina.a.getSize() <= MIDA_PETITA;
+            Matriu resultat;
+            String nom;
+            if (feina.operacio == ProtocolServei.OP_MULTIPLICAR) {
+                nom = "Multiplication";
+                resultat = petita
+                        ? cache.obtenir(feina.a, feina.b, CLAU_PRODUCTE,
+                                (a, b) -> new Multiplicacio(a, b, -1, new TokenCancellacio()).compute())
+                        : multiplicarGran(feina.a, feina.b);
+            } else {
+                nom = "Addition";
+                resultat = petita ? feina.a.add(feina.b) : Suma.add(feina.a, feina.b);
+            }
+            metriques.registrar(nom, System.nanoTime() - feina.arribada);
+            feina.resultat.complete(resultat);
+        } catch (Exception | OutOfMemoryError e) {
+            feina.resultat.completeExceptionally(e);
+        } finally {
+            capacitat.release();
+        }
+    }
+
+    /**
+     * Multiplica una feina gran. La memòria cau es consulta abans de triar motor, i només en cas d'errada el
+     * despatxador en tria un i n'aprèn el temps mesurat.
+     * @param a Matriu A.
+     * @param b Matriu B.
+     * @return Producte, potser de la memòria cau.
+     */
+    private Matriu multiplicarGran(Matriu a, Matriu b) {
+        return cache.obtenir(a, b, CLAU_PRODUCTE, (x, y) -> {
+            EstrategiaMultiplicacio motor = despatxador.triar(x, y, planificador.getParallelisme());
+            try (PlanificadorExecucio.Feina treball = planificador.obrirFeina(motor.getNom(), planificador.getParallelisme())) {
+                return despatxador.multiplicar(motor, x, y, new TokenCancellacio(), treball);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Multiplicació interrompuda");
+            }
+        });
+    }
+
+    /**
+     * @return Resum de l'estat de la cua i de les latències de la finestra actual.
+     */
+    public String estadistiques() {
+        return String.format("admitted=%d/%d rejected=%d batches=%d%n"
+                        + "add: count=%d throughput=%.2f/s p50=%.3fms p99=%.3fms max=%.3fms%n"
+                        + "mult: count=%d throughput=%.2f/s p50=%.3fms p99=%.3fms max=%.3fms%n"
+                        + "cache: %s%n"
+                        + "scheduler: %s; %s",
+                capacitatMaxima - capacitat.availablePermits(), capacitatMaxima, rebutjades.get(), lots.get(),
+                metriques.getAdditionCount(), metriques.getAdditionThroughput(),
+                metriques.getAdditionLatencyP50Ms(), metriques.getAdditionLatencyP99Ms(),
+                metriques.getAdditionLatencyMaxMs(),
+                metriques.getMultiplicationCount(), metriques.getMultiplicationThroughput(),
+                metriques.getMultiplicationLatencyP50Ms(), metriques.getMultiplicationLatencyP99Ms(),
+                metriques.getMultiplicationLatencyMaxMs(),
+                cache.estadistiques(), planificador.estadistiques(), feinaLots.estadistiques());
+    }
+
+    /**
+     * Espera fins que el servei es tanca.
+     * @throws InterruptedException Si s'interromp l'espera.
+     */
+    public void esperar() throws InterruptedException {
+        fils.get(0).join();
+    }
+
+    /**
+     * Atura el servei: deixa d'acceptar connexions i atura els fils de despatx.
+     */
+    @Override
+    public void close() throws IOException {
+        actiu = false;
+        servidor.close();
+        for (Thread fil : fils) {
+            fil.interrupt();
+        }
+        feinaLots.close();
+    }
+
+    /**
+     * Ús: {@code java Servei.ServidorMatrius [port] [capacitat] [directoriBolcat]}. Amb directori de bolcat, els
+     * productes desallotjats de la memòria cau es desen al disc (fins a quatre vegades el pressupost de memòria).
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int capacitat = args.length > 1 ? Integer.parseInt(args[1]) : CAPACITAT_PER_DEFECTE;
+        long pressupost = Runtime.getRuntime().maxMemory() / 4;
+        CacheResultats cache = args.length > 2
+                ? new CacheResultats(pressupost, Paths.get(args[2]), 4 * pressupost)
+                : new CacheResultats(pressupost);
+        try (ServidorMatrius servei = new ServidorMatrius(port, capacitat, cache)) {
+            System.out.println("READY " + servei.getPort());
+            servei.esperar();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package Servei;
+
+import java.io.IOException;
+
+/**
+ * El servidor ha rebutjat la petició perquè la cua és plena; el client pot reintentar-la més tard.
+ */
+public class ServidorOcupatException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public ServidorOcupatException(String missatge) {
+        super(missatge);
+    }
+}
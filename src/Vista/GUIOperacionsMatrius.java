@@ -5,6 +5,11 @@ import Controladora.Notificar;
 import javax.swing.*;
 import java.awt.*;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -23,20 +28,24 @@ public class GUIOperacionsMatrius extends JFrame {
     private JCheckBox sumCheckBox;
     private JCheckBox multiplicationCheckBox;
     private JCheckBox fixedSeedCheckBox;
+    private JCheckBox verifyCheckBox;
+    private JTextField verifyRoundsField;
+    private JTextField timeBudgetField;
+    private JLabel statusLabel;
     private JButton runButton;
     private JButton stopButton;
 
-    // Existing benchmark datasets and chart
+    // Benchmark and constants charts; one series per operation type, created when its first point arrives
+    private static final Color[] SERIES_COLORS = {
+            Color.BLUE, Color.RED, new Color(0, 140, 0), Color.ORANGE, Color.MAGENTA, new Color(0, 150, 150)
+    };
     private XYSeriesCollection dataset;
-    private XYSeries additionSeries;
-    private XYSeries multiplicationSeries;
+    private XYLineAndShapeRenderer renderer;
     private JFreeChart chart;
     private XYPlot plot;
 
-    // New dataset and chart for constants (both addition and multiplication)
     private XYSeriesCollection constantDataset;
-    private XYSeries additionConstantSeries;
-    private XYSeries multiplicationConstantSeries;
+    private XYLineAndShapeRenderer constantRenderer;
     private JFreeChart constantChart;
 
     // Labels for displaying constants in the benchmark chart
@@ -45,6 +54,14 @@ public class GUIOperacionsMatrius extends JFrame {
     private double lastAdditionX = 0;
     private double lastMultiplicationX = 0;
 
+    // Buffered updates: points are queued from the calculation thread and drawn once per frame
+    private static final int FRAME_MILLIS = 40;
+    private static final int DISPLAY_BUDGET = 1000;
+    private final ConcurrentLinkedQueue<DataPoint> pendingPoints = new ConcurrentLinkedQueue<>();
+    private final Map<String, DecimatedSeries> timeSeries = new LinkedHashMap<>();
+    private final Map<String, DecimatedSeries> constantSeries = new LinkedHashMap<>();
+    private Timer flushTimer;
+
     private final Notificar controller;
     private final DecimalFormat constantFormat = new DecimalFormat("0.000E0");
 
@@ -63,12 +80,8 @@ public class GUIOperacionsMatrius extends JFrame {
 
         JPanel controlPanel = createControlPanel();
 
-        // ========== Benchmark chart setup (unchanged) ==========
+        // ========== Benchmark chart setup ==========
         dataset = new XYSeriesCollection();
-        additionSeries = new XYSeries("Addition");
-        multiplicationSeries = new XYSeries("Multiplication");
-        dataset.addSeries(additionSeries);
-        dataset.addSeries(multiplicationSeries);
 
         chart = ChartFactory.createXYLineChart(
                 "Matrix Operations Benchmark",
@@ -82,11 +95,7 @@ public class GUIOperacionsMatrius extends JFrame {
         );
 
         plot = chart.getXYPlot();
-        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer();
-        renderer.setSeriesPaint(0, Color.BLUE);
-        renderer.setSeriesPaint(1, Color.RED);
-        renderer.setSeriesStroke(0, new BasicStroke(2.0f));
-        renderer.setSeriesStroke(1, new BasicStroke(2.0f));
+        renderer = new XYLineAndShapeRenderer();
         plot.setRenderer(renderer);
 
         additionConstantLabel = new XYTextAnnotation("", 0, 0);
@@ -101,12 +110,8 @@ public class GUIOperacionsMatrius extends JFrame {
         ChartPanel benchmarkChartPanel = new ChartPanel(chart);
         benchmarkChartPanel.setPreferredSize(new Dimension(800, 500));
 
-        // ========== Constants chart setup (modified) ==========
+        // ========== Constants chart setup ==========
         constantDataset = new XYSeriesCollection();
-        additionConstantSeries = new XYSeries("Addition Constant");
-        multiplicationConstantSeries = new XYSeries("Multiplication Constant");
-        constantDataset.addSeries(additionConstantSeries);
-        constantDataset.addSeries(multiplicationConstantSeries);
 
         constantChart = ChartFactory.createXYLineChart(
                 "Constant Graph",
@@ -120,11 +125,7 @@ public class GUIOperacionsMatrius extends JFrame {
         );
 
         XYPlot constantPlot = constantChart.getXYPlot();
-        XYLineAndShapeRenderer constantRenderer = new XYLineAndShapeRenderer();
-        constantRenderer.setSeriesPaint(0, Color.BLUE);
-        constantRenderer.setSeriesStroke(0, new BasicStroke(2.0f));
-        constantRenderer.setSeriesPaint(1, Color.RED);
-        constantRenderer.setSeriesStroke(1, new BasicStroke(2.0f));
+        constantRenderer = new XYLineAndShapeRenderer();
         constantPlot.setRenderer(constantRenderer);
 
         // ----- NEW CODE: Use a log axis on the Y-axis -----
@@ -143,8 +144,15 @@ public class GUIOperacionsMatrius extends JFrame {
         tabbedPane.addTab("Benchmark", benchmarkChartPanel);
         tabbedPane.addTab("Constants", constantChartPanel);
 
+        statusLabel = new JLabel(" ");
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 0, 10));
+
         mainPanel.add(controlPanel, BorderLayout.NORTH);
         mainPanel.add(tabbedPane, BorderLayout.CENTER);
+        mainPanel.add(statusLabel, BorderLayout.SOUTH);
+
+        flushTimer = new Timer(FRAME_MILLIS, e -> flushPendingPoints());
+        flushTimer.start();
 
         add(mainPanel);
         pack();
@@ -159,7 +167,7 @@ public class GUIOperacionsMatrius extends JFrame {
     }
 
     private JPanel createControlPanel() {
-        JPanel controlPanel = new JPanel(new GridLayout(2, 4, 10, 10));
+        JPanel controlPanel = new JPanel(new GridLayout(3, 4, 10, 10));
         controlPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         // First row
@@ -191,6 +199,22 @@ public class GUIOperacionsMatrius extends JFrame {
         buttonPanel.add(stopButton);
         controlPanel.add(buttonPanel);
 
+        // Third row
+        controlPanel.add(new JLabel("Time Budget (s, 0 = none):"));
+        timeBudgetField = new JTextField(5);
+        timeBudgetField.setText("0");
+        controlPanel.add(timeBudgetField);
+
+        verifyCheckBox = new JCheckBox("Verify (Freivalds)");
+        controlPanel.add(verifyCheckBox);
+
+        JPanel roundsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        roundsPanel.add(new JLabel("Rounds:"));
+        verifyRoundsField = new JTextField(3);
+        verifyRoundsField.setText("8");
+        roundsPanel.add(verifyRoundsField);
+        controlPanel.add(roundsPanel);
+
         // Action listeners
         runButton.addActionListener(e -> startCalculation());
         stopButton.addActionListener(e -> controller.onCalculationStopped());
@@ -202,31 +226,36 @@ public class GUIOperacionsMatrius extends JFrame {
         try {
             int initialDimension = Integer.parseInt(dimensionField.getText().trim());
             int stepping = Integer.parseInt(steppingField.getText().trim());
+            double timeBudget = Double.parseDouble(timeBudgetField.getText().trim());
+            int verifyRounds = Integer.parseInt(verifyRoundsField.getText().trim());
 
             if (initialDimension <= 0 || stepping <= 0) {
                 showError("Please enter positive integers for dimension and step size.");
                 return;
             }
+            if (timeBudget < 0) {
+                showError("Please enter a non-negative time budget.");
+                return;
+            }
+            if (verifyRounds <= 0) {
+                showError("Please enter a positive number of verification rounds.");
+                return;
+            }
 
-            // Clear data and annotations for benchmark chart
-            additionSeries.clear();
-            multiplicationSeries.clear();
-            plot.removeAnnotation(additionConstantLabel);
-            plot.removeAnnotation(multiplicationConstantLabel);
-            additionConstantLabel = new XYTextAnnotation("", 0, 0);
-            additionConstantLabel.setPaint(Color.BLUE);
-            additionConstantLabel.setFont(new Font("SansSerif", Font.BOLD, 12));
-            multiplicationConstantLabel = new XYTextAnnotation("", 0, 0);
-            multiplicationConstantLabel.setPaint(Color.RED);
-            multiplicationConstantLabel.setFont(new Font("SansSerif", Font.BOLD, 12));
-            plot.addAnnotation(additionConstantLabel);
-            plot.addAnnotation(multiplicationConstantLabel);
+            // Clear pending points, data and annotations for benchmark chart
+            pendingPoints.clear();
+            timeSeries.values().forEach(DecimatedSeries::clear);
+            timeSeries.clear();
+            dataset.removeAllSeries();
+            additionConstantLabel.setText("");
+            multiplicationConstantLabel.setText("");
             lastAdditionX = 0;
             lastMultiplicationX = 0;
 
             // Clear data for constants chart
-            additionConstantSeries.clear();
-            multiplicationConstantSeries.clear();
+            constantSeries.values().forEach(DecimatedSeries::clear);
+            constantSeries.clear();
+            constantDataset.removeAllSeries();
 
             boolean sumEnabled = sumCheckBox.isSelected();
             boolean multiplicationEnabled = multiplicationCheckBox.isSelected();
@@ -241,11 +270,14 @@ public class GUIOperacionsMatrius extends JFrame {
                     stepping,
                     sumEnabled,
                     multiplicationEnabled,
-                    fixedSeedCheckBox.isSelected()
+                    fixedSeedCheckBox.isSelected(),
+                    verifyCheckBox.isSelected(),
+                    verifyRounds,
+                    timeBudget
             );
 
         } catch (NumberFormatException e) {
-            showError("Please enter valid integers for dimension and step size.");
+            showError("Please enter valid numbers for dimension, step size, time budget and rounds.");
         }
     }
 
@@ -258,46 +290,168 @@ public class GUIOperacionsMatrius extends JFrame {
             sumCheckBox.setEnabled(!running);
             multiplicationCheckBox.setEnabled(!running);
             fixedSeedCheckBox.setEnabled(!running);
+            verifyCheckBox.setEnabled(!running);
+            verifyRoundsField.setEnabled(!running);
+            timeBudgetField.setEnabled(!running);
         });
     }
 
+    /**
+     * Queues a result; it is drawn on the next frame together with any other pending points.
+     * Safe to call from any thread.
+     */
     public void addDataPoint(String operationType, int dimension, double executionTime, double constant) {
-        SwingUtilities.invokeLater(() -> {
-            if ("Addition".equals(operationType)) {
-                additionSeries.add(dimension, executionTime);
-                lastAdditionX = dimension;
+        pendingPoints.add(new DataPoint(operationType, dimension, executionTime, constant));
+    }
 
-                // Update constant label for Addition in benchmark chart
-                String constantText = "Addition constant: " + constantFormat.format(constant);
-                plot.removeAnnotation(additionConstantLabel);
-                additionConstantLabel = new XYTextAnnotation(constantText, dimension, executionTime * 0.9);
-                additionConstantLabel.setPaint(Color.BLUE);
-                additionConstantLabel.setFont(new Font("SansSerif", Font.BOLD, 12));
-                plot.addAnnotation(additionConstantLabel);
+    /**
+     * Drains the pending points on the EDT with chart notifications suspended, so each frame triggers
+     * a single redraw per chart regardless of how many results arrived.
+     */
+    private void flushPendingPoints() {
+        if (pendingPoints.isEmpty()) return;
+
+        chart.setNotify(false);
+        constantChart.setNotify(false);
+        try {
+            DataPoint lastAddition = null;
+            DataPoint lastMultiplication = null;
+            DataPoint point;
+            while ((point = pendingPoints.poll()) != null) {
+                seriesFor(timeSeries, dataset, renderer, point.operationType)
+                        .add(point.dimension, point.executionTime);
+                seriesFor(constantSeries, constantDataset, constantRenderer, point.operationType + " Constant")
+                        .add(point.dimension, point.constant);
+                if ("Addition".equals(point.operationType)) {
+                    lastAddition = point;
+                } else if (point.operationType.startsWith("Multiplication")) {
+                    lastMultiplication = point;
+                }
+            }
 
-                // Also add data point to the constants chart for addition constant
-                additionConstantSeries.add(dimension, constant);
+            for (DecimatedSeries series : timeSeries.values()) {
+                series.refresh();
+            }
+            for (DecimatedSeries series : constantSeries.values()) {
+                series.refresh();
+            }
 
-            } else if ("Multiplication".equals(operationType)) {
-                multiplicationSeries.add(dimension, executionTime);
-                lastMultiplicationX = dimension;
+            if (lastAddition != null) {
+                lastAdditionX = lastAddition.dimension;
+
+                // Update constant label for Addition in benchmark chart
+                additionConstantLabel.setText("Addition constant: " + constantFormat.format(lastAddition.constant));
+                additionConstantLabel.setX(lastAddition.dimension);
+                additionConstantLabel.setY(lastAddition.executionTime * 0.9);
+            }
+            if (lastMultiplication != null) {
+                lastMultiplicationX = lastMultiplication.dimension;
 
                 // Update constant label for Multiplication in benchmark chart (placed at top right)
-                String constantText = "Multiplication constant: " + constantFormat.format(constant);
-                plot.removeAnnotation(multiplicationConstantLabel);
-                double xPos = plot.getDomainAxis().getUpperBound() - 50;  // adjust offset as needed
-                double yPos = plot.getRangeAxis().getUpperBound() - 10;   // adjust offset as needed
-                multiplicationConstantLabel = new XYTextAnnotation(constantText, xPos, yPos);
-                multiplicationConstantLabel.setPaint(Color.RED);
-                multiplicationConstantLabel.setFont(new Font("SansSerif", Font.BOLD, 12));
-                plot.addAnnotation(multiplicationConstantLabel);
-
-                // Also add data point to the constants chart for multiplication constant
-                multiplicationConstantSeries.add(dimension, constant);
+                multiplicationConstantLabel.setText(lastMultiplication.operationType + " constant: "
+                        + constantFormat.format(lastMultiplication.constant));
+                multiplicationConstantLabel.setX(plot.getDomainAxis().getUpperBound() - 50);  // adjust offset as needed
+                multiplicationConstantLabel.setY(plot.getRangeAxis().getUpperBound() - 10);   // adjust offset as needed
             }
+        } finally {
+            chart.setNotify(true);
+            constantChart.setNotify(true);
+        }
+    }
+
+    /**
+     * Returns the series for an operation type, adding it to the chart with the next colour on first use.
+     */
+    private static DecimatedSeries seriesFor(Map<String, DecimatedSeries> series, XYSeriesCollection target,
+                                             XYLineAndShapeRenderer seriesRenderer, String name) {
+        return series.computeIfAbsent(name, key -> {
+            XYSeries xySeries = new XYSeries(key);
+            target.addSeries(xySeries);
+            int index = target.getSeriesCount() - 1;
+            seriesRenderer.setSeriesPaint(index, SERIES_COLORS[index % SERIES_COLORS.length]);
+            seriesRenderer.setSeriesStroke(index, new BasicStroke(2.0f));
+            return new DecimatedSeries(xySeries);
         });
     }
 
+    /**
+     * A result waiting to be drawn.
+     */
+    private static class DataPoint {
+        final String operationType;
+        final int dimension;
+        final double executionTime;
+        final double constant;
+
+        DataPoint(String operationType, int dimension, double executionTime, double constant) {
+            this.operationType = operationType;
+            this.dimension = dimension;
+            this.executionTime = executionTime;
+            this.constant = constant;
+        }
+    }
+
+    /**
+     * Keeps the full history of a series and shows at most DISPLAY_BUDGET points. Past the budget the history
+     * is split into DISPLAY_BUDGET / 2 buckets and only the minimum and maximum of each bucket are drawn,
+     * which preserves spikes that plain subsampling would hide.
+     */
+    private static class DecimatedSeries {
+        private final XYSeries series;
+        private final List<double[]> points = new ArrayList<>();
+        private int shown = 0;
+
+        DecimatedSeries(XYSeries series) {
+            this.series = series;
+        }
+
+        void add(double x, double y) {
+            points.add(new double[]{x, y});
+        }
+
+        void clear() {
+            points.clear();
+            shown = 0;
+            series.clear();
+        }
+
+        void refresh() {
+            if (shown == points.size()) return;
+
+            if (points.size() <= DISPLAY_BUDGET) {
+                for (; shown < points.size(); shown++) {
+                    series.add(points.get(shown)[0], points.get(shown)[1], false);
+                }
+            } else {
+                series.clear();
+                int buckets = DISPLAY_BUDGET / 2;
+                double perBucket = (double) points.size() / buckets;
+                for (int b = 0; b < buckets; b++) {
+                    int from = (int) (b * perBucket);
+                    int to = Math.min((int) ((b + 1) * perBucket), points.size());
+                    int min = from;
+                    int max = from;
+                    for (int i = from + 1; i < to; i++) {
+                        if (points.get(i)[1] < points.get(min)[1]) min = i;
+                        if (points.get(i)[1] > points.get(max)[1]) max = i;
+                    }
+                    int first = Math.min(min, max);
+                    int second = Math.max(min, max);
+                    series.add(points.get(first)[0], points.get(first)[1], false);
+                    if (second != first) {
+                        series.add(points.get(second)[0], points.get(second)[1], false);
+                    }
+                }
+                shown = points.size();
+            }
+            series.fireSeriesChanged();
+        }
+    }
+
+    public void showStatus(String message) {
+        SwingUtilities.invokeLater(() -> statusLabel.setText(message));
+    }
+
     public void showError(String message) {
         SwingUtilities.invokeLater(() -> {
             JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);